@@ -0,0 +1,181 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.cfg;
+
+import java.util.List;
+
+/**
+ * ExtendedConfiguration 的默认实现基类
+ * 子类只需实现Configuration中的方法，扩展配置项均使用默认值，需要时再覆盖对应的方法
+ */
+public abstract class AbstractConfiguration implements ExtendedConfiguration {
+    /*
+     * 分词缓冲区默认的字符数和耗尽临界值
+     */
+    public static final int DEFAULT_BUFF_SIZE             = 4096;
+    public static final int DEFAULT_BUFF_EXHAUST_CRITICAL = 100;
+
+    /**
+     * 取得配置的扩展配置项
+     * 已实现ExtendedConfiguration的配置原样返回；只实现Configuration的配置包装为使用默认扩展配置项的对象，
+     * Configuration中的方法仍由原配置处理
+     * 
+     * @param cfg
+     * @return ExtendedConfiguration
+     */
+    public static ExtendedConfiguration extend(final Configuration cfg) {
+        if (cfg instanceof ExtendedConfiguration) {
+            return (ExtendedConfiguration) cfg;
+        }
+        return new ConfigurationAdapter(cfg);
+    }
+
+    /**
+     * 获取词典二进制快照的文件路径
+     * 
+     * @return String 默认为null，不使用快照
+     */
+    @Override
+    public String getDictionarySnapshot() {
+        return null;
+    }
+
+    /**
+     * 是否以内存映射方式使用词典快照
+     * 
+     * @return boolean 默认为false
+     */
+    @Override
+    public boolean useMappedDictionary() {
+        return false;
+    }
+
+    /**
+     * 是否将词典压缩为最小化的无环自动机
+     * 
+     * @return boolean 默认为false
+     */
+    @Override
+    public boolean useCompactDictionary() {
+        return false;
+    }
+
+    /**
+     * 是否使用Aho-Corasick自动机扫描主词典
+     * 
+     * @return boolean 默认为false
+     */
+    @Override
+    public boolean useAhoCorasickScan() {
+        return false;
+    }
+
+    /**
+     * 获取词典增量日志目录
+     * 
+     * @return String 默认为null，不使用增量日志
+     */
+    @Override
+    public String getDictionaryDeltaDirectory() {
+        return null;
+    }
+
+    /**
+     * 是否监视扩展词典和扩展停止词典文件
+     * 
+     * @return boolean 默认为false
+     */
+    @Override
+    public boolean useDictionaryWatch() {
+        return false;
+    }
+
+    /**
+     * 获取分词缓冲区的字符数
+     * 
+     * @return int 默认为4096
+     */
+    @Override
+    public int getBufferSize() {
+        return AbstractConfiguration.DEFAULT_BUFF_SIZE;
+    }
+
+    /**
+     * 获取缓冲区耗尽的临界值
+     * 
+     * @return int 默认为100
+     */
+    @Override
+    public int getBufferExhaustCritical() {
+        return AbstractConfiguration.DEFAULT_BUFF_EXHAUST_CRITICAL;
+    }
+
+    /**
+     * 获取缓冲区可以扩大到的最大字符数
+     * 
+     * @return int 默认为0，即不扩大
+     */
+    @Override
+    public int getMaxBufferSize() {
+        return 0;
+    }
+
+    /**
+     * 只实现Configuration的配置的包装，Configuration中的方法交给原配置处理
+     */
+    private static final class ConfigurationAdapter extends AbstractConfiguration {
+        // 被包装的配置
+        private final Configuration cfg;
+
+        ConfigurationAdapter(final Configuration cfg) {
+            this.cfg = cfg;
+        }
+
+        @Override
+        public boolean useSmart() {
+            return this.cfg.useSmart();
+        }
+
+        @Override
+        public void setUseSmart(final boolean useSmart) {
+            this.cfg.setUseSmart(useSmart);
+        }
+
+        @Override
+        public String getMainDictionary() {
+            return this.cfg.getMainDictionary();
+        }
+
+        @Override
+        public String getQuantifierDicionary() {
+            return this.cfg.getQuantifierDicionary();
+        }
+
+        @Override
+        public List<String> getExtDictionarys() {
+            return this.cfg.getExtDictionarys();
+        }
+
+        @Override
+        public List<String> getExtStopWordDictionarys() {
+            return this.cfg.getExtStopWordDictionarys();
+        }
+    }
+}
@@ -32,26 +32,44 @@ import org.apache.lucene.util.Version;
  * Configuration 默认实现
  * 2012-5-8
  */
-public class DefaultConfig implements Configuration {
-    public static final Version LUCENE_VERSION      = Version.LUCENE_42;
+public class DefaultConfig extends AbstractConfiguration {
+    public static final Version LUCENE_VERSION        = Version.LUCENE_42;
     /*
      * 分词器默认字典路径
      */
-    private static final String PATH_DIC_MAIN       = "main.dic";
-    private static final String PATH_DIC_QUANTIFIER = "quantifier.dic";
+    private static final String PATH_DIC_MAIN         = "main.dic";
+    private static final String PATH_DIC_QUANTIFIER   = "quantifier.dic";
     /*
      * 分词器配置文件路径
      */
-    private static final String FILE_NAME           = "IKAnalyzer.cfg.xml";
+    private static final String FILE_NAME             = "IKAnalyzer.cfg.xml";
     // 配置属性——扩展字典
-    private static final String EXT_DICT            = "ext_dict";
+    private static final String EXT_DICT              = "ext_dict";
     // 配置属性——扩展停止词典
-    private static final String EXT_STOP            = "ext_stopwords";
-    private Properties          props;
+    private static final String EXT_STOP              = "ext_stopwords";
+    // 配置属性——词典快照文件
+    private static final String DICT_SNAPSHOT         = "dict_snapshot";
+    // 配置属性——内存映射词典快照
+    private static final String DICT_MMAP             = "dict_mmap";
+    // 配置属性——压缩词典
+    private static final String DICT_COMPACT          = "dict_compact";
+    // 配置属性——Aho-Corasick扫描
+    private static final String AC_SCAN               = "ac_scan";
+    // 配置属性——词典增量日志目录
+    private static final String DICT_DELTA_DIR        = "dict_delta_dir";
+    // 配置属性——监视扩展词典文件
+    private static final String DICT_WATCH            = "dict_watch";
+    // 配置属性——分词缓冲区字符数
+    private static final String BUFF_SIZE             = "buff_size";
+    // 配置属性——分词缓冲区耗尽临界值
+    private static final String BUFF_EXHAUST_CRITICAL = "buff_exhaust_critical";
+    // 配置属性——分词缓冲区最大字符数
+    private static final String BUFF_MAX_SIZE         = "buff_max_size";
+    private Properties            props;
     /*
      * 是否使用smart方式分词
      */
-    private boolean             useSmart;
+    private boolean               useSmart;
 
     /**
      * 返回单例
@@ -59,15 +77,27 @@ public class DefaultConfig implements Configuration {
      * @return Configuration单例
      */
     public static Configuration getInstance() {
-        return new DefaultConfig();
+        return new DefaultConfig(DefaultConfig.FILE_NAME);
+    }
+
+    /**
+     * 读取指定的配置文件
+     * 用于在同一个进程中为不同的分词器配置不同的扩展词典
+     * 
+     * @param fileName
+     *            相对类加载器的配置文件路径
+     * @return Configuration
+     */
+    public static Configuration getInstance(final String fileName) {
+        return new DefaultConfig(fileName);
     }
 
     /*
      * 初始化配置文件
      */
-    private DefaultConfig() {
+    private DefaultConfig(final String fileName) {
         this.props = new Properties();
-        final InputStream input = this.getClass().getClassLoader().getResourceAsStream(DefaultConfig.FILE_NAME);
+        final InputStream input = this.getClass().getClassLoader().getResourceAsStream(fileName);
         if (input != null) {
             try {
                 this.props.loadFromXML(input);
@@ -166,4 +196,122 @@ public class DefaultConfig implements Configuration {
         }
         return extStopWordDictFiles;
     }
+
+    /**
+     * 获取词典二进制快照的文件路径
+     * 
+     * @return String 文件系统路径，未配置时返回null
+     */
+    @Override
+    public String getDictionarySnapshot() {
+        final String snapshot = this.props.getProperty(DefaultConfig.DICT_SNAPSHOT);
+        if ((snapshot == null) || "".equals(snapshot.trim())) {
+            return null;
+        }
+        return snapshot.trim();
+    }
+
+    /**
+     * 是否以内存映射方式使用词典快照
+     * 
+     * @return boolean
+     */
+    @Override
+    public boolean useMappedDictionary() {
+        return Boolean.parseBoolean(this.props.getProperty(DefaultConfig.DICT_MMAP, "false").trim());
+    }
+
+    /**
+     * 是否将词典压缩为最小化的无环自动机
+     * 
+     * @return boolean
+     */
+    @Override
+    public boolean useCompactDictionary() {
+        return Boolean.parseBoolean(this.props.getProperty(DefaultConfig.DICT_COMPACT, "false").trim());
+    }
+
+    /**
+     * 是否使用Aho-Corasick自动机扫描主词典
+     * 
+     * @return boolean
+     */
+    @Override
+    public boolean useAhoCorasickScan() {
+        return Boolean.parseBoolean(this.props.getProperty(DefaultConfig.AC_SCAN, "false").trim());
+    }
+
+    /**
+     * 获取词典增量日志目录
+     * 
+     * @return String 文件系统路径，未配置时返回null
+     */
+    @Override
+    public String getDictionaryDeltaDirectory() {
+        final String directory = this.props.getProperty(DefaultConfig.DICT_DELTA_DIR);
+        if ((directory == null) || "".equals(directory.trim())) {
+            return null;
+        }
+        return directory.trim();
+    }
+
+    /**
+     * 是否监视扩展词典和扩展停止词典文件
+     * 
+     * @return boolean
+     */
+    @Override
+    public boolean useDictionaryWatch() {
+        return Boolean.parseBoolean(this.props.getProperty(DefaultConfig.DICT_WATCH, "false").trim());
+    }
+
+    /**
+     * 获取分词缓冲区的字符数
+     * 
+     * @return int 未配置时为4096
+     */
+    @Override
+    public int getBufferSize() {
+        return this.getIntProperty(DefaultConfig.BUFF_SIZE, AbstractConfiguration.DEFAULT_BUFF_SIZE);
+    }
+
+    /**
+     * 获取缓冲区耗尽的临界值
+     * 
+     * @return int 未配置时为100
+     */
+    @Override
+    public int getBufferExhaustCritical() {
+        return this.getIntProperty(DefaultConfig.BUFF_EXHAUST_CRITICAL, AbstractConfiguration.DEFAULT_BUFF_EXHAUST_CRITICAL);
+    }
+
+    /**
+     * 获取缓冲区可以扩大到的最大字符数
+     * 
+     * @return int 未配置时为0，即不扩大
+     */
+    @Override
+    public int getMaxBufferSize() {
+        return this.getIntProperty(DefaultConfig.BUFF_MAX_SIZE, 0);
+    }
+
+    /*
+     * 读取正整数配置项，未配置或格式错误时返回默认值
+     */
+    private int getIntProperty(final String key, final int defaultValue) {
+        final String value = this.props.getProperty(key);
+        if ((value == null) || "".equals(value.trim())) {
+            return defaultValue;
+        }
+        try {
+            final int i = Integer.parseInt(value.trim());
+            if (i > 0) {
+                return i;
+            }
+        } catch (final NumberFormatException e) {
+            // 按格式错误处理
+        }
+        System.err.println("Invalid configuration " + key + " : " + value);
+        return defaultValue;
+    }
 }
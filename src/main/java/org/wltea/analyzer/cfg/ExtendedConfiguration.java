@@ -0,0 +1,100 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.cfg;
+
+/**
+ * 扩展配置接口
+ * 词典快照、压缩、增量更新和分词缓冲区等配置项，在Configuration之外单独定义，已有的Configuration实现无需修改即可继续编译
+ * 只实现Configuration的配置通过AbstractConfiguration.extend使用这些配置项的默认值
+ */
+public interface ExtendedConfiguration extends Configuration {
+    /**
+     * 获取词典二进制快照的文件路径
+     * 未配置时不使用快照
+     * 
+     * @return String 文件系统路径，可以为null
+     */
+    public String getDictionarySnapshot();
+
+    /**
+     * 是否以内存映射方式使用词典快照
+     * =true 词典数据留在堆外，由同一台机器上的多个进程共享，需要同时配置快照文件
+     * 
+     * @return boolean
+     */
+    public boolean useMappedDictionary();
+
+    /**
+     * 是否将词典压缩为最小化的无环自动机（DAWG）
+     * =true 合并具有相同后缀的节点，减少占用的槽位，编译时间稍长
+     * 
+     * @return boolean
+     */
+    public boolean useCompactDictionary();
+
+    /**
+     * 是否使用Aho-Corasick自动机扫描主词典
+     * =true 中文子分词器逐字符做一次状态转移，直接得到以当前字符结尾的全部词，不再逐个推进未完成的前缀，词典加载时多占用一些内存
+     * 
+     * @return boolean
+     */
+    public boolean useAhoCorasickScan();
+
+    /**
+     * 获取词典增量日志目录
+     * 配置后加载词典时应用目录中的全部增量日志，之后在后台持续读取新追加的操作
+     * 
+     * @return String 文件系统路径，可以为null
+     */
+    public String getDictionaryDeltaDirectory();
+
+    /**
+     * 是否监视扩展词典和扩展停止词典文件
+     * =true 文件变化后在后台重新加载对应的词典并整体替换，不需要重启
+     * 使用java.nio.file.WatchService监视文件，需要Java 7及以上版本；其余功能仍可在Java 6上运行
+     * 
+     * @return boolean
+     */
+    public boolean useDictionaryWatch();
+
+    /**
+     * 获取分词缓冲区的字符数
+     * 缓冲区越大，长文本分段读入和处理的次数越少，每个分词器实例占用的内存越多
+     * 
+     * @return int
+     */
+    public int getBufferSize();
+
+    /**
+     * 获取缓冲区耗尽的临界值
+     * 指针距缓冲区末端不足该字符数、且没有子分词器占用缓冲区时，移出已处理的字符并读入新的字符
+     * 
+     * @return int
+     */
+    public int getBufferExhaustCritical();
+
+    /**
+     * 获取缓冲区可以扩大到的最大字符数
+     * 子分词器占用缓冲区、无法移位读入时，缓冲区成倍扩大，直到该字符数，避免词在缓冲区末端被截断
+     * 
+     * @return int 不大于缓冲区字符数时不扩大
+     */
+    public int getMaxBufferSize();
+}
@@ -21,23 +21,29 @@ package org.wltea.analyzer.core;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 
+import org.wltea.analyzer.cfg.AbstractConfiguration;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.ExtendedConfiguration;
 import org.wltea.analyzer.dic.Dictionary;
 
 /**
  * 分词器上下文状态
  */
 class AnalyzeContext {
-    // 默认缓冲区大小
-    private static final int         BUFF_SIZE             = 4096;
+    // 缓冲区初始大小
+    private int                      buffSize;
     // 缓冲区耗尽的临界值
-    private static final int         BUFF_EXHAUST_CRITICAL = 100;
+    private int                      buffExhaustCritical;
+    // 缓冲区被占用时可以扩大到的最大长度
+    private int                      maxBuffSize;
     // 字符窜读取缓冲
     private char[]                   segmentBuff;
     // 字符类型数组
@@ -49,6 +55,10 @@ class AnalyzeContext {
     private int                      cursor;
     // 最近一次读入的,可处理的字串长度
     private int                      available;
+    // 直接输入的待分析文本，下次填充segmentBuff时整段读入，不经过Reader
+    private CharSequence             text;
+    // segmentBuff中是否已是直接输入的全部文本，为true时不再移位和读取
+    private boolean                  textInput;
     // 子分词器锁
     // 该集合非空，说明有子分词器在占用segmentBuff
     private Set<String>              buffLocker;
@@ -60,11 +70,19 @@ class AnalyzeContext {
     private LinkedList<Lexeme>       results;
     // 分词器配置项
     private Configuration            cfg;
+    // 分词使用的词典
+    private Dictionary               dictionary;
 
-    public AnalyzeContext(final Configuration cfg) {
+    public AnalyzeContext(final Configuration cfg, final Dictionary dictionary) {
         this.cfg = cfg;
-        this.segmentBuff = new char[AnalyzeContext.BUFF_SIZE];
-        this.charTypes = new int[AnalyzeContext.BUFF_SIZE];
+        this.dictionary = dictionary;
+        // 只实现Configuration的配置使用默认的缓冲区大小
+        final ExtendedConfiguration extendedCfg = AbstractConfiguration.extend(cfg);
+        this.buffSize = Math.max(2, extendedCfg.getBufferSize());
+        this.buffExhaustCritical = Math.min(extendedCfg.getBufferExhaustCritical(), this.buffSize - 1);
+        this.maxBuffSize = Math.max(this.buffSize, extendedCfg.getMaxBufferSize());
+        this.segmentBuff = new char[this.buffSize];
+        this.charTypes = new int[this.buffSize];
         this.buffLocker = new HashSet<String>();
         this.orgLexemes = new QuickSortSet();
         this.pathMap = new HashMap<Integer, LexemePath>();
@@ -95,6 +113,10 @@ class AnalyzeContext {
         return this.buffOffset;
     }
 
+    Dictionary getDictionary() {
+        return this.dictionary;
+    }
+
     /**
      * 根据context的上下文情况，填充segmentBuff
      * 
@@ -103,20 +125,38 @@ class AnalyzeContext {
      * @throws IOException
      */
     int fillBuffer(final Reader reader) throws IOException {
+        if (this.text != null) {
+            return this.fillBuffer(this.text);
+        }
+        if (this.textInput || (reader == null)) {
+            // 直接输入的文本已经分析完，或者没有输入
+            return -1;
+        }
         int readCount = 0;
+        // 本次新读入字符的起始位置
+        int readBegin = 0;
         if (this.buffOffset == 0) {
             // 首次读取reader
-            readCount = reader.read(this.segmentBuff);
+            readCount = this.read(reader, 0, this.segmentBuff.length);
         } else {
             final int offset = this.available - this.cursor;
             if (offset > 0) {
                 // 最近一次读取的>最近一次处理的，将未处理的字串拷贝到segmentBuff头部
+                // 这部分字符读入时已经规格化，字符类型一并拷贝
                 System.arraycopy(this.segmentBuff, this.cursor, this.segmentBuff, 0, offset);
+                System.arraycopy(this.charTypes, this.cursor, this.charTypes, 0, offset);
+                // 头部字符即上次处理到的字符，与逐个字符处理时initCursor的行为一致，再规格化一次
+                // 全角大写字母两次规格化后为半角小写，保持与原有分词结果相同
+                this.segmentBuff[0] = CharacterUtil.regularize(this.segmentBuff[0]);
+                this.charTypes[0] = CharacterUtil.identifyCharType(this.segmentBuff[0]);
                 readCount = offset;
+                readBegin = offset;
             }
             // 继续读取reader ，以onceReadIn - onceAnalyzed为起始位置，继续填充segmentBuff剩余的部分
-            readCount += reader.read(this.segmentBuff, offset, AnalyzeContext.BUFF_SIZE - offset);
+            readCount += this.read(reader, offset, this.segmentBuff.length - offset);
         }
+        // 新读入的字符批量规格化并识别类型，分词时指针移动不再逐个处理
+        CharacterUtil.regularize(this.segmentBuff, this.charTypes, readBegin, readCount);
         // 记录最后一次从Reader中读入的可用字符长度
         this.available = readCount;
         // 重置当前指针
@@ -125,30 +165,140 @@ class AnalyzeContext {
     }
 
     /**
-     * 初始化buff指针，处理第一个字符
+     * 设置直接分析的文本，代替Reader作为输入
+     * 下次fillBuffer时整段放入segmentBuff，分析过程中不再移位和读取
+     * 
+     * @param text
+     *            分析期间不能修改
+     */
+    void setText(final CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * 将直接输入的文本整段放入segmentBuff
+     * 文本长于缓冲区时按文本长度分配缓冲区，使用到reset
+     * 
+     * @return 文本长度
+     */
+    private int fillBuffer(final CharSequence input) {
+        final int length = input.length();
+        if (length > this.segmentBuff.length) {
+            this.segmentBuff = new char[length];
+            this.charTypes = new int[length];
+        }
+        AnalyzeContext.getChars(input, this.segmentBuff, length);
+        CharacterUtil.regularize(this.segmentBuff, this.charTypes, 0, length);
+        this.text = null;
+        this.textInput = true;
+        this.available = length;
+        this.cursor = 0;
+        return length;
+    }
+
+    /**
+     * 将文本拷贝到字符数组头部
+     * String、StringBuilder、StringBuffer和CharBuffer使用批量拷贝，其他CharSequence逐个字符读取
+     */
+    private static void getChars(final CharSequence input, final char[] dst, final int length) {
+        if (input instanceof String) {
+            ((String) input).getChars(0, length, dst, 0);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(0, length, dst, 0);
+        } else if (input instanceof StringBuffer) {
+            ((StringBuffer) input).getChars(0, length, dst, 0);
+        } else if (input instanceof CharBuffer) {
+            // 使用副本读取，不改变调用者的position
+            ((CharBuffer) input).duplicate().get(dst, 0, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst[i] = input.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * 扩大segmentBuff，在已读入的字串之后继续读取reader
+     * 扩大后的缓冲区一直使用到reset
+     * 
+     * @param reader
+     * @return 新读入的字符数，reader已读完时返回-1
+     * @throws IOException
+     */
+    int growBuffer(final Reader reader) throws IOException {
+        final int length = (int) Math.min(this.segmentBuff.length * 2L, this.maxBuffSize);
+        this.segmentBuff = Arrays.copyOf(this.segmentBuff, length);
+        this.charTypes = Arrays.copyOf(this.charTypes, length);
+        final int readCount = this.read(reader, this.available, length - this.available);
+        if (readCount > 0) {
+            CharacterUtil.regularize(this.segmentBuff, this.charTypes, this.available, this.available + readCount);
+            this.available += readCount;
+        }
+        return readCount;
+    }
+
+    /**
+     * 从reader读取字符到segmentBuff，直到填满指定区域或reader读完
+     * Reader.read可能只读入部分字符，填满缓冲区才能保证available等于缓冲区长度时还有后续数据
+     * 
+     * @return 读入的字符数，与Reader.read一样，reader已读完、没有读入任何字符时返回-1
+     */
+    private int read(final Reader reader, final int offset, final int length) throws IOException {
+        int readCount = 0;
+        while (readCount < length) {
+            final int count = reader.read(this.segmentBuff, offset + readCount, length - readCount);
+            if (count < 0) {
+                return readCount == 0 ? -1 : readCount;
+            }
+            readCount += count;
+        }
+        return readCount;
+    }
+
+    /**
+     * 初始化buff指针，指向第一个字符
+     * 字符已在fillBuffer中完成规格化和类型识别
      */
     void initCursor() {
         this.cursor = 0;
-        this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor]);
-        this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
     }
 
     /**
      * 指针+1
      * 成功返回 true； 指针已经到了buff尾部，不能前进，返回false
-     * 并处理当前字符
      */
     boolean moveCursor() {
         if (this.cursor < this.available - 1) {
             this.cursor++;
-            this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor]);
-            this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * 跳过连续的CHAR_USELESS字符
+     * 当前字符为CHAR_USELESS且子分词器都已处理完当前字符、没有占用segmentBuff时，
+     * 各子分词器都处于初始状态，其后连续的CHAR_USELESS字符不会产生词元，
+     * 将指针直接移至这段字符的最后一个，下次moveCursor即到达下一个有效字符
+     * 缓冲区还可能移位读入时，最多移至临界区之前，临界区内的每个位置仍逐个经过needRefillBuffer判断，
+     * 移位的位置与逐个字符移动时相同，不改变后续缓冲区的切分和分词结果
+     */
+    void skipUselessChars() {
+        if ((CharacterUtil.CHAR_USELESS != this.charTypes[this.cursor]) || this.isBufferLocked()) {
+            return;
+        }
+        int limit = this.available - 1;
+        if (!this.textInput && (this.available == this.segmentBuff.length)) {
+            limit = Math.min(limit, this.available - this.buffExhaustCritical);
+        }
+        int last = this.cursor;
+        while ((last < limit) && (CharacterUtil.CHAR_USELESS == this.charTypes[last + 1])) {
+            last++;
+        }
+        this.cursor = last;
+    }
+
     /**
      * 设置当前segmentBuff为锁定状态
      * 加入占用segmentBuff的子分词器名称，表示占用segmentBuff
@@ -191,15 +341,31 @@ class AnalyzeContext {
     /**
      * 判断segmentBuff是否需要读取新数据
      * 满足一下条件时，
-     * 1.available == BUFF_SIZE 表示buffer满载
-     * 2.buffIndex < available - 1 && buffIndex > available - BUFF_EXHAUST_CRITICAL表示当前指针处于临界区内
+     * 1.available == segmentBuff.length 表示buffer满载
+     * 2.buffIndex < available - 1 && buffIndex > available - buffExhaustCritical表示当前指针处于临界区内
      * 3.!context.isBufferLocked()表示没有segmenter在占用buffer
+     * 4.!textInput 表示输入来自Reader，直接输入的文本已经全部在buffer中
      * 要中断当前循环（buffer要进行移位，并再读取数据的操作）
      * 
      * @return
      */
     boolean needRefillBuffer() {
-        return (this.available == AnalyzeContext.BUFF_SIZE) && (this.cursor < this.available - 1) && (this.cursor > this.available - AnalyzeContext.BUFF_EXHAUST_CRITICAL) && !this.isBufferLocked();
+        return !this.textInput && (this.available == this.segmentBuff.length) && (this.cursor < this.available - 1) && (this.cursor > this.available - this.buffExhaustCritical) && !this.isBufferLocked();
+    }
+
+    /**
+     * 判断segmentBuff是否需要扩大
+     * 满足以下条件时，扩大缓冲区继续读入数据，占用缓冲区的子分词器不必在缓冲区末端强行结束
+     * 1.available == segmentBuff.length 表示buffer满载
+     * 2.当前指针处于临界区内
+     * 3.context.isBufferLocked()表示有segmenter在占用buffer，不能移位
+     * 4.segmentBuff.length < maxBuffSize 表示缓冲区还可以扩大
+     * 5.!textInput 表示输入来自Reader
+     * 
+     * @return
+     */
+    boolean needGrowBuffer() {
+        return !this.textInput && (this.available == this.segmentBuff.length) && (this.cursor < this.available - 1) && (this.cursor > this.available - this.buffExhaustCritical) && this.isBufferLocked() && (this.segmentBuff.length < this.maxBuffSize);
     }
 
     /**
@@ -307,7 +473,7 @@ class AnalyzeContext {
         while (result != null) {
             // 数量词合并
             this.compound(result);
-            if (Dictionary.getSingleton().isStopWord(this.segmentBuff, result.getBegin(), result.getLength())) {
+            if (this.dictionary.isStopWord(this.segmentBuff, result.getBegin(), result.getLength())) {
                 // 是停止词继续取列表的下一个
                 result = this.results.pollFirst();
             } else {
@@ -327,10 +493,15 @@ class AnalyzeContext {
         this.orgLexemes = new QuickSortSet();
         this.available = 0;
         this.buffOffset = 0;
-        this.charTypes = new int[AnalyzeContext.BUFF_SIZE];
+        if (this.segmentBuff.length != this.buffSize) {
+            // 缓冲区被扩大过，恢复初始大小；未扩大时继续使用，分析短文本时不重复分配
+            this.charTypes = new int[this.buffSize];
+            this.segmentBuff = new char[this.buffSize];
+        }
         this.cursor = 0;
+        this.text = null;
+        this.textInput = false;
         this.results.clear();
-        this.segmentBuff = new char[AnalyzeContext.BUFF_SIZE];
         this.pathMap.clear();
     }
 
@@ -19,10 +19,7 @@
  */
 package org.wltea.analyzer.core;
 
-import java.util.LinkedList;
-import java.util.List;
-
-import org.wltea.analyzer.dic.Dictionary;
+import org.wltea.analyzer.dic.AhoCorasickAutomaton;
 import org.wltea.analyzer.dic.Hit;
 
 /**
@@ -30,51 +27,67 @@ import org.wltea.analyzer.dic.Hit;
  */
 class CJKSegmenter implements ISegmenter {
     // 子分词器标签
-    static final String SEGMENTER_NAME = "CJK_SEGMENTER";
+    static final String          SEGMENTER_NAME = "CJK_SEGMENTER";
     // 待处理的分词hit队列
-    private List<Hit>   tmpHits;
+    private HitQueue             tmpHits;
+    // 正在使用的主词典自动机，回到根状态前不切换到更新后的版本
+    private AhoCorasickAutomaton automaton;
+    // 自动机的当前状态
+    private int                  state;
 
     CJKSegmenter() {
-        this.tmpHits = new LinkedList<Hit>();
+        this.tmpHits = new HitQueue();
+        this.state = AhoCorasickAutomaton.ROOT_STATE;
     }
 
     @Override
     public void analyze(final AnalyzeContext context) {
+        if (this.state == AhoCorasickAutomaton.ROOT_STATE) {
+            this.automaton = context.getDictionary().getMainAutomaton();
+        }
+        if (this.automaton != null) {
+            this.scan(context);
+            return;
+        }
         if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
             // 优先处理tmpHits中的hit
             if (!this.tmpHits.isEmpty()) {
-                // 处理词段队列
-                final Hit[] tmpArray = this.tmpHits.toArray(new Hit[this.tmpHits.size()]);
-                for (Hit hit : tmpArray) {
-                    hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor(), hit);
+                // 处理词段队列，仍需继续匹配的hit前移保留
+                int alive = 0;
+                for (int i = 0; i < this.tmpHits.size(); i++) {
+                    final Hit hit = context.getDictionary().matchWithHit(context.getSegmentBuff(), context.getCursor(), this.tmpHits.get(i));
                     if (hit.isMatch()) {
                         // 输出当前的词
                         final Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(), context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_CNWORD);
+                        newLexeme.setWeight(hit.getWeight());
                         context.addLexeme(newLexeme);
-                        if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，移除
-                            this.tmpHits.remove(hit);
+                        if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，回收
+                            this.tmpHits.recycle(hit);
+                            continue;
                         }
                     } else if (hit.isUnmatch()) {
-                        // hit不是词，移除
-                        this.tmpHits.remove(hit);
+                        // hit不是词，回收
+                        this.tmpHits.recycle(hit);
+                        continue;
                     }
+                    this.tmpHits.set(alive++, hit);
                 }
+                this.tmpHits.truncate(alive);
             }
             // *********************************
             // 再对当前指针位置的字符进行单字匹配
-            final Hit singleCharHit = Dictionary.getSingleton().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1);
+            final Hit singleCharHit = context.getDictionary().matchInMainDict(context.getSegmentBuff(), context.getCursor(), 1, this.tmpHits.obtain());
             if (singleCharHit.isMatch()) {// 首字成词
                 // 输出当前的词
                 final Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1, Lexeme.TYPE_CNWORD);
+                newLexeme.setWeight(singleCharHit.getWeight());
                 context.addLexeme(newLexeme);
-                // 同时也是词前缀
-                if (singleCharHit.isPrefix()) {
-                    // 前缀匹配则放入hit列表
-                    this.tmpHits.add(singleCharHit);
-                }
-            } else if (singleCharHit.isPrefix()) {// 首字为词前缀
+            }
+            if (singleCharHit.isPrefix()) {// 首字为词前缀
                 // 前缀匹配则放入hit列表
                 this.tmpHits.add(singleCharHit);
+            } else {
+                this.tmpHits.recycle(singleCharHit);
             }
         } else {
             // 遇到CHAR_USELESS字符
@@ -87,7 +100,41 @@ class CJKSegmenter implements ISegmenter {
             this.tmpHits.clear();
         }
         // 判断是否锁定缓冲区
-        if (this.tmpHits.size() == 0) {
+        if (this.tmpHits.isEmpty()) {
+            context.unlockBuffer(CJKSegmenter.SEGMENTER_NAME);
+        } else {
+            context.lockBuffer(CJKSegmenter.SEGMENTER_NAME);
+        }
+    }
+
+    /**
+     * 使用Aho-Corasick自动机扫描
+     * 每个字符做一次状态转移，沿输出链接输出以当前字符结尾的全部词，结果与逐个推进hit相同
+     */
+    private void scan(final AnalyzeContext context) {
+        if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
+            this.state = this.automaton.next(this.state, context.getCurrentChar());
+            // 输出词从长到短，即起始位置从前到后
+            for (int m = this.automaton.firstMatch(this.state); m != AhoCorasickAutomaton.NONE; m = this.automaton.nextMatch(m)) {
+                final int length = this.automaton.depth(m);
+                final Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor() - length + 1, length, Lexeme.TYPE_CNWORD);
+                newLexeme.setWeight(this.automaton.weight(m));
+                context.addLexeme(newLexeme);
+            }
+            if (!this.automaton.isPrefix(this.state)) {
+                // 已没有可能继续成词的前缀
+                this.state = AhoCorasickAutomaton.ROOT_STATE;
+            }
+        } else {
+            // 遇到CHAR_USELESS字符
+            this.state = AhoCorasickAutomaton.ROOT_STATE;
+        }
+        // 判断缓冲区是否已经读完
+        if (context.isBufferConsumed()) {
+            this.state = AhoCorasickAutomaton.ROOT_STATE;
+        }
+        // 判断是否锁定缓冲区
+        if (this.state == AhoCorasickAutomaton.ROOT_STATE) {
             context.unlockBuffer(CJKSegmenter.SEGMENTER_NAME);
         } else {
             context.lockBuffer(CJKSegmenter.SEGMENTER_NAME);
@@ -98,5 +145,7 @@ class CJKSegmenter implements ISegmenter {
     public void reset() {
         // 清空队列
         this.tmpHits.clear();
+        this.automaton = null;
+        this.state = AhoCorasickAutomaton.ROOT_STATE;
     }
 }
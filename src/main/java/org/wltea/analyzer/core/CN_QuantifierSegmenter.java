@@ -20,11 +20,8 @@
 package org.wltea.analyzer.core;
 
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
-import org.wltea.analyzer.dic.Dictionary;
 import org.wltea.analyzer.dic.Hit;
 
 /**
@@ -54,12 +51,12 @@ class CN_QuantifierSegmenter implements ISegmenter {
      */
     private int                   nEnd;
     // 待处理的量词hit队列
-    private List<Hit>             countHits;
+    private HitQueue              countHits;
 
     CN_QuantifierSegmenter() {
         this.nStart = -1;
         this.nEnd = -1;
-        this.countHits = new LinkedList<Hit>();
+        this.countHits = new HitQueue();
     }
 
     /**
@@ -137,38 +134,42 @@ class CN_QuantifierSegmenter implements ISegmenter {
         if (CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()) {
             // 优先处理countHits中的hit
             if (!this.countHits.isEmpty()) {
-                // 处理词段队列
-                final Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
-                for (Hit hit : tmpArray) {
-                    hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(), context.getCursor(), hit);
+                // 处理词段队列，仍需继续匹配的hit前移保留
+                int alive = 0;
+                for (int i = 0; i < this.countHits.size(); i++) {
+                    final Hit hit = context.getDictionary().matchWithHit(context.getSegmentBuff(), context.getCursor(), this.countHits.get(i));
                     if (hit.isMatch()) {
                         // 输出当前的词
                         final Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(), context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_COUNT);
+                        newLexeme.setWeight(hit.getWeight());
                         context.addLexeme(newLexeme);
-                        if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，移除
-                            this.countHits.remove(hit);
+                        if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，回收
+                            this.countHits.recycle(hit);
+                            continue;
                         }
                     } else if (hit.isUnmatch()) {
-                        // hit不是词，移除
-                        this.countHits.remove(hit);
+                        // hit不是词，回收
+                        this.countHits.recycle(hit);
+                        continue;
                     }
+                    this.countHits.set(alive++, hit);
                 }
+                this.countHits.truncate(alive);
             }
             // *********************************
             // 对当前指针位置的字符进行单字匹配
-            final Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1);
+            final Hit singleCharHit = context.getDictionary().matchInQuantifierDict(context.getSegmentBuff(), context.getCursor(), 1, this.countHits.obtain());
             if (singleCharHit.isMatch()) {// 首字成量词词
                 // 输出当前的词
                 final Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1, Lexeme.TYPE_COUNT);
+                newLexeme.setWeight(singleCharHit.getWeight());
                 context.addLexeme(newLexeme);
-                // 同时也是词前缀
-                if (singleCharHit.isPrefix()) {
-                    // 前缀匹配则放入hit列表
-                    this.countHits.add(singleCharHit);
-                }
-            } else if (singleCharHit.isPrefix()) {// 首字为量词前缀
+            }
+            if (singleCharHit.isPrefix()) {// 首字为量词前缀
                 // 前缀匹配则放入hit列表
                 this.countHits.add(singleCharHit);
+            } else {
+                this.countHits.recycle(singleCharHit);
             }
         } else {
             // 输入的不是中文字符
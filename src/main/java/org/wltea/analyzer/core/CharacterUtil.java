@@ -24,11 +24,23 @@ package org.wltea.analyzer.core;
  * 字符集识别工具类
  */
 class CharacterUtil {
-    public static final int CHAR_USELESS   = 0;
-    public static final int CHAR_ARABIC    = 0X00000001;
-    public static final int CHAR_ENGLISH   = 0X00000002;
-    public static final int CHAR_CHINESE   = 0X00000004;
-    public static final int CHAR_OTHER_CJK = 0X00000008;
+    public static final int     CHAR_USELESS      = 0;
+    public static final int     CHAR_ARABIC       = 0X00000001;
+    public static final int     CHAR_ENGLISH      = 0X00000002;
+    public static final int     CHAR_CHINESE      = 0X00000004;
+    public static final int     CHAR_OTHER_CJK    = 0X00000008;
+    // 以字符为下标的字符类型表
+    private static final byte[] CHAR_TYPES        = new byte[Character.MAX_VALUE + 1];
+    // 以字符为下标的规格化字符表
+    private static final char[] REGULARIZED_CHARS = new char[Character.MAX_VALUE + 1];
+
+    static {
+        // 对全部65536个字符预先计算类型和规格化结果，分词时每个字符只需一次数组读取
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            CharacterUtil.CHAR_TYPES[c] = (byte) CharacterUtil.computeCharType((char) c);
+            CharacterUtil.REGULARIZED_CHARS[c] = CharacterUtil.computeRegularized((char) c);
+        }
+    }
 
     /**
      * 识别字符类型
@@ -37,6 +49,46 @@ class CharacterUtil {
      * @return int CharacterUtil定义的字符类型常量
      */
     static int identifyCharType(final char input) {
+        return CharacterUtil.CHAR_TYPES[input];
+    }
+
+    /**
+     * 进行字符规格化（全角转半角，大写转小写处理）
+     * 
+     * @param input
+     * @return char
+     */
+    static char regularize(final char input) {
+        return CharacterUtil.REGULARIZED_CHARS[input];
+    }
+
+    /**
+     * 批量进行字符规格化并识别字符类型
+     * 只做查表和数组读写，便于JIT展开循环
+     * 
+     * @param input
+     *            字符数组，规格化结果写回原位置
+     * @param charTypes
+     *            写入字符类型的数组，与input下标对应
+     * @param begin
+     *            起始位置（含）
+     * @param end
+     *            结束位置（不含），不大于begin时不做处理
+     */
+    static void regularize(final char[] input, final int[] charTypes, final int begin, final int end) {
+        final byte[] types = CharacterUtil.CHAR_TYPES;
+        final char[] regularized = CharacterUtil.REGULARIZED_CHARS;
+        for (int i = begin; i < end; i++) {
+            final char c = regularized[input[i]];
+            input[i] = c;
+            charTypes[i] = types[c];
+        }
+    }
+
+    /**
+     * 计算字符类型，用于构造字符类型表
+     */
+    private static int computeCharType(final char input) {
         if ((input >= '0') && (input <= '9')) {
             return CharacterUtil.CHAR_ARABIC;
         } else if (((input >= 'a') && (input <= 'z')) || ((input >= 'A') && (input <= 'Z'))) {
@@ -62,12 +114,9 @@ class CharacterUtil {
     }
 
     /**
-     * 进行字符规格化（全角转半角，大写转小写处理）
-     * 
-     * @param input
-     * @return char
+     * 计算规格化字符，用于构造规格化字符表
      */
-    static char regularize(char input) {
+    private static char computeRegularized(char input) {
         if (input == 12288) {
             input = (char) 32;
         } else if ((input > 65280) && (input < 65375)) {
@@ -0,0 +1,122 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.core;
+
+import java.util.Arrays;
+
+import org.wltea.analyzer.dic.Hit;
+
+/**
+ * 子分词器持有的待处理hit队列
+ * 失效的hit回收到队列自带的对象池中复用，避免逐字符创建Hit对象
+ */
+class HitQueue {
+    // 初始容量
+    private static final int INIT_CAPACITY = 8;
+    // 处理中的hit
+    private Hit[]            hits;
+    // 处理中的hit数目
+    private int              size;
+    // 已回收的空闲hit
+    private Hit[]            pool;
+    // 空闲hit数目
+    private int              poolSize;
+
+    HitQueue() {
+        this.hits = new Hit[HitQueue.INIT_CAPACITY];
+        this.pool = new Hit[HitQueue.INIT_CAPACITY];
+    }
+
+    /**
+     * 从对象池获取一个hit，池为空时新建
+     * 
+     * @return Hit
+     */
+    Hit obtain() {
+        if (this.poolSize > 0) {
+            final Hit hit = this.pool[--this.poolSize];
+            this.pool[this.poolSize] = null;
+            return hit;
+        }
+        return new Hit();
+    }
+
+    /**
+     * 将hit回收到对象池
+     * 
+     * @param hit
+     */
+    void recycle(final Hit hit) {
+        if (this.poolSize == this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool, this.poolSize * 2);
+        }
+        this.pool[this.poolSize++] = hit;
+    }
+
+    /**
+     * 添加处理中的hit
+     * 
+     * @param hit
+     */
+    void add(final Hit hit) {
+        if (this.size == this.hits.length) {
+            this.hits = Arrays.copyOf(this.hits, this.size * 2);
+        }
+        this.hits[this.size++] = hit;
+    }
+
+    Hit get(final int index) {
+        return this.hits[index];
+    }
+
+    void set(final int index, final Hit hit) {
+        this.hits[index] = hit;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * 截断队列，只保留前newSize个hit
+     * 被截掉的hit应当已经由调用者回收
+     * 
+     * @param newSize
+     */
+    void truncate(final int newSize) {
+        Arrays.fill(this.hits, newSize, this.size, null);
+        this.size = newSize;
+    }
+
+    /**
+     * 清空队列，回收全部处理中的hit
+     */
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.recycle(this.hits[i]);
+            this.hits[i] = null;
+        }
+        this.size = 0;
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.wltea.analyzer.core;
 
+import java.util.Arrays;
 import java.util.Stack;
 import java.util.TreeSet;
 
@@ -47,8 +48,7 @@ class IKArbitrator {
                     context.addLexemePath(crossPath);
                 } else {
                     // 对当前的crossPath进行歧义处理
-                    final QuickSortSet.Cell headCell = crossPath.getHead();
-                    final LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+                    final LexemePath judgeResult = this.choose(context, crossPath);
                     // 输出歧义处理结果judgeResult
                     context.addLexemePath(judgeResult);
                 }
@@ -65,13 +65,80 @@ class IKArbitrator {
             context.addLexemePath(crossPath);
         } else {
             // 对当前的crossPath进行歧义处理
-            final QuickSortSet.Cell headCell = crossPath.getHead();
-            final LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+            final LexemePath judgeResult = this.choose(context, crossPath);
             // 输出歧义处理结果judgeResult
             context.addLexemePath(judgeResult);
         }
     }
 
+    /**
+     * 选出歧义路径的最优切分
+     * 路径中有词元带词频时按词频打分，否则生成并比较候选路径
+     * 
+     * @param context
+     * @param crossPath
+     * @return LexemePath
+     */
+    private LexemePath choose(final AnalyzeContext context, final LexemePath crossPath) {
+        final long totalWeight = context.getDictionary().getTotalWeight();
+        if ((totalWeight > 0) && crossPath.hasWeight()) {
+            return this.score(crossPath, Math.log(totalWeight));
+        }
+        return this.judge(crossPath.getHead(), crossPath.getPathLength());
+    }
+
+    /**
+     * 按词频选出概率最大的切分
+     * 词元的得分为 log(词频 / 词频总和)，没有词频的词元和不被任何词元覆盖的字符按词频1计分
+     * 从前向后一次动态规划：best[i]为覆盖路径前i个字符的最高得分，每个位置可以跳过一个字符或接上一个从该位置开始的词元
+     * 
+     * @param crossPath
+     *            歧义路径，词元按起始位置排列
+     * @param logTotal
+     *            词频总和的对数
+     * @return LexemePath
+     */
+    private LexemePath score(final LexemePath crossPath, final double logTotal) {
+        final int pathBegin = crossPath.getPathBegin();
+        final int length = crossPath.getPathLength();
+        final double[] best = new double[length + 1];
+        // 最优切分中在该位置结束的词元，跳过字符时为null
+        final Lexeme[] last = new Lexeme[length + 1];
+        Arrays.fill(best, Double.NEGATIVE_INFINITY);
+        best[0] = 0;
+        QuickSortSet.Cell c = crossPath.getHead();
+        for (int i = 0; i < length; i++) {
+            // 跳过一个字符
+            if (best[i] - logTotal > best[i + 1]) {
+                best[i + 1] = best[i] - logTotal;
+                last[i + 1] = null;
+            }
+            // 得分相同时词元优先于跳过字符
+            while ((c != null) && (c.getLexeme() != null) && (c.getLexeme().getBegin() - pathBegin == i)) {
+                final Lexeme l = c.getLexeme();
+                final int end = i + l.getLength();
+                final double s = best[i] + Math.log(Math.max(1, l.getWeight())) - logTotal;
+                if (s >= best[end]) {
+                    best[end] = s;
+                    last[end] = l;
+                }
+                c = c.getNext();
+            }
+        }
+        // 从路径末尾回溯
+        final LexemePath result = new LexemePath();
+        int i = length;
+        while (i > 0) {
+            if (last[i] == null) {
+                i--;
+            } else {
+                result.addNotCrossLexeme(last[i]);
+                i -= last[i].getLength();
+            }
+        }
+        return result;
+    }
+
     /**
      * 歧义识别
      * 
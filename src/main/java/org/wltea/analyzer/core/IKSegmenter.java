@@ -21,6 +21,7 @@ package org.wltea.analyzer.core;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,14 +73,103 @@ public final class IKSegmenter {
         this.init();
     }
 
+    /**
+     * IK分词器构造函数
+     * 
+     * @param input
+     * @param cfg
+     *            使用自定义的Configuration构造分词器
+     * @param dictionary
+     *            使用指定的词典，而不是按配置共享的词典
+     */
+    public IKSegmenter(final Reader input, final Configuration cfg, final Dictionary dictionary) {
+        this.input = input;
+        this.cfg = cfg;
+        this.init(dictionary);
+    }
+
+    /**
+     * IK分词器构造函数
+     * 直接分析文本，不经过Reader，文本整段放入缓冲区，不分段读取
+     * 
+     * @param text
+     *            分析期间不能修改；分析文本的一部分时可以传入CharBuffer.wrap(text, start, end)，不拷贝文本
+     * @param useSmart
+     *            为true，使用智能分词策略
+     */
+    public IKSegmenter(final CharSequence text, final boolean useSmart) {
+        this((Reader) null, useSmart);
+        this.context.setText(text);
+    }
+
+    /**
+     * IK分词器构造函数
+     * 直接分析文本，不经过Reader，文本整段放入缓冲区，不分段读取
+     * 
+     * @param text
+     *            分析期间不能修改
+     * @param cfg
+     *            使用自定义的Configuration构造分词器
+     */
+    public IKSegmenter(final CharSequence text, final Configuration cfg) {
+        this((Reader) null, cfg);
+        this.context.setText(text);
+    }
+
+    /**
+     * IK分词器构造函数
+     * 直接分析字符数组中的一段，不经过Reader，不分段读取
+     * 词元位置相对于offset计算
+     * 
+     * @param text
+     *            分析期间不能修改，分词器不会修改数组内容
+     * @param offset
+     *            起始位置
+     * @param length
+     *            字符数
+     * @param useSmart
+     *            为true，使用智能分词策略
+     */
+    public IKSegmenter(final char[] text, final int offset, final int length, final boolean useSmart) {
+        this(CharBuffer.wrap(text, offset, length), useSmart);
+    }
+
+    /**
+     * IK分词器构造函数
+     * 直接分析字符数组中的一段，不经过Reader，不分段读取
+     * 词元位置相对于offset计算
+     * 
+     * @param text
+     *            分析期间不能修改，分词器不会修改数组内容
+     * @param offset
+     *            起始位置
+     * @param length
+     *            字符数
+     * @param cfg
+     *            使用自定义的Configuration构造分词器
+     */
+    public IKSegmenter(final char[] text, final int offset, final int length, final Configuration cfg) {
+        this(CharBuffer.wrap(text, offset, length), cfg);
+    }
+
     /**
      * 初始化
      */
     private void init() {
-        // 初始化词典单例
+        // 初始化默认词典，兼容通过Dictionary.getSingleton访问词典的代码
         Dictionary.initial(this.cfg);
+        // 获取配置对应的词典
+        this.init(Dictionary.getInstance(this.cfg));
+    }
+
+    /**
+     * 初始化
+     * 
+     * @param dictionary
+     */
+    private void init(final Dictionary dictionary) {
         // 初始化分词上下文
-        this.context = new AnalyzeContext(this.cfg);
+        this.context = new AnalyzeContext(this.cfg, dictionary);
         // 加载子分词器
         this.segmenters = this.loadSegmenters();
         // 加载歧义裁决器
@@ -129,10 +219,16 @@ public final class IKSegmenter {
                     for (final ISegmenter segmenter : this.segmenters) {
                         segmenter.analyze(this.context);
                     }
+                    // 子分词器都已空闲时，整段跳过连续的CHAR_USELESS字符
+                    this.context.skipUselessChars();
                     // 字符缓冲区接近读完，需要读入新的字符
                     if (this.context.needRefillBuffer()) {
                         break;
                     }
+                    // 字符缓冲区接近读完但被子分词器占用，扩大缓冲区读入新的字符
+                    if (this.context.needGrowBuffer()) {
+                        this.context.growBuffer(this.input);
+                    }
                     // 向前移动指针
                 } while (this.context.moveCursor());
                 // 重置子分词器，为下轮循环进行初始化
@@ -162,4 +258,29 @@ public final class IKSegmenter {
             segmenter.reset();
         }
     }
+
+    /**
+     * 重置分词器到初始状态，直接分析文本
+     * 
+     * @param text
+     *            分析期间不能修改
+     */
+    public synchronized void reset(final CharSequence text) {
+        this.reset((Reader) null);
+        this.context.setText(text);
+    }
+
+    /**
+     * 重置分词器到初始状态，直接分析字符数组中的一段
+     * 
+     * @param text
+     *            分析期间不能修改，分词器不会修改数组内容
+     * @param offset
+     *            起始位置
+     * @param length
+     *            字符数
+     */
+    public synchronized void reset(final char[] text, final int offset, final int length) {
+        this.reset(CharBuffer.wrap(text, offset, length));
+    }
 }
@@ -54,6 +54,8 @@ public class Lexeme implements Comparable<Lexeme> {
     private String          lexemeText;
     // 词元类型
     private int             lexemeType;
+    // 词元在词典中的词频，词典未提供词频时为0
+    private int             weight;
 
     public Lexeme(final int offset, final int begin, final int length, final int lexemeType) {
         this.offset = offset;
@@ -174,6 +176,27 @@ public class Lexeme implements Comparable<Lexeme> {
         this.length = length;
     }
 
+    /**
+     * 获取词元在词典中的词频
+     * 词频是词典文件中词条后以制表符分隔的非负整数，即词条出现的次数，不做归一化
+     * smart模式歧义处理时按 log(词频 / 词典词频总和) 计分
+     * 
+     * @return int 词典未提供词频或词元不是来自词典时为0
+     */
+    public int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * 设置词元在词典中的词频
+     * 
+     * @param weight
+     *            非负整数，0表示没有词频
+     */
+    public void setWeight(final int weight) {
+        this.weight = weight;
+    }
+
     /**
      * 获取词元的文本内容
      * 
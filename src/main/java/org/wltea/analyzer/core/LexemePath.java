@@ -174,6 +174,22 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
         return pWeight;
     }
 
+    /**
+     * 路径中是否有带词频的词元
+     * 
+     * @return boolean
+     */
+    boolean hasWeight() {
+        Cell c = this.getHead();
+        while ((c != null) && (c.getLexeme() != null)) {
+            if (c.getLexeme().getWeight() > 0) {
+                return true;
+            }
+            c = c.getNext();
+        }
+        return false;
+    }
+
     LexemePath copy() {
         final LexemePath theCopy = new LexemePath();
         theCopy.pathBegin = this.pathBegin;
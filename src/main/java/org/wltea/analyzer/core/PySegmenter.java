@@ -72,14 +72,39 @@ public final class PySegmenter {
         this.init();
     }
 
+    /**
+     * IK分词器构造函数
+     * 
+     * @param input
+     * @param cfg
+     *            使用自定义的Configuration构造分词器
+     * @param dictionary
+     *            使用指定的词典，而不是按配置共享的词典
+     */
+    public PySegmenter(final Reader input, final Configuration cfg, final Dictionary dictionary) {
+        this.input = input;
+        this.cfg = cfg;
+        this.init(dictionary);
+    }
+
     /**
      * 初始化
      */
     private void init() {
-        // 初始化词典单例
+        // 初始化默认词典，兼容通过Dictionary.getSingleton访问词典的代码
         Dictionary.initial(this.cfg);
+        // 获取配置对应的词典
+        this.init(Dictionary.getInstance(this.cfg));
+    }
+
+    /**
+     * 初始化
+     * 
+     * @param dictionary
+     */
+    private void init(final Dictionary dictionary) {
         // 初始化分词上下文
-        this.context = new AnalyzeContext(this.cfg);
+        this.context = new AnalyzeContext(this.cfg, dictionary);
         // 加载子分词器
         this.segmenters = this.loadSegmenters();
         // 加载歧义裁决器
@@ -129,10 +154,16 @@ public final class PySegmenter {
                     for (final ISegmenter segmenter : this.segmenters) {
                         segmenter.analyze(this.context);
                     }
+                    // 子分词器都已空闲时，整段跳过连续的CHAR_USELESS字符
+                    this.context.skipUselessChars();
                     // 字符缓冲区接近读完，需要读入新的字符
                     if (this.context.needRefillBuffer()) {
                         break;
                     }
+                    // 字符缓冲区接近读完但被子分词器占用，扩大缓冲区读入新的字符
+                    if (this.context.needGrowBuffer()) {
+                        this.context.growBuffer(this.input);
+                    }
                     // 向前移动指针
                 } while (this.context.moveCursor());
                 // 重置子分词器，为下轮循环进行初始化
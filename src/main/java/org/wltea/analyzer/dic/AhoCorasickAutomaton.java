@@ -0,0 +1,224 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 主词典的Aho-Corasick自动机
+ * 在双数组Trie的状态上增加失败转移和输出链接，逐字符扫描文本时，每个字符只需一次状态转移，
+ * 沿输出链接即可得到以该字符结尾的全部词条，不必为每个未完成的前缀单独匹配
+ * 失败转移要求每个状态只对应一条路径，压缩为DAWG的双数组先展开为普通的双数组
+ * 自动机编译后只读，与编译时的主词典版本对应
+ */
+public final class AhoCorasickAutomaton {
+    // 根状态
+    public static final int       ROOT_STATE = DoubleArrayTrie.ROOT_STATE;
+    // 没有更多输出
+    public static final int       NONE       = -1;
+    // 提供状态转移的双数组
+    private final DoubleArrayTrie trie;
+    // 失败转移，指向当前路径最长的、同时也是词典树中某条路径的真后缀
+    private final int[]           fail;
+    // 输出链接，沿失败转移遇到的第一个成词状态
+    private final int[]           output;
+    // 状态的深度，即从根状态到该状态的路径长度
+    private final int[]           depth;
+    // 该状态或它的某个失败转移还有后续节点，即仍有更长的词可能在后面的字符上结束
+    private final boolean[]       prefix;
+
+    private AhoCorasickAutomaton(final DoubleArrayTrie trie) {
+        this.trie = trie;
+        final int size = trie.size();
+        this.fail = new int[size];
+        this.output = new int[size];
+        this.depth = new int[size];
+        this.prefix = new boolean[size];
+        // 建立每个区块的槽位链表，槽位t所在区块的起点为 t - check[t]
+        final int[] firstChild = new int[size];
+        final int[] nextSibling = new int[size];
+        Arrays.fill(firstChild, DoubleArrayTrie.FREE);
+        for (int t = size - 1; t > DoubleArrayTrie.ROOT_STATE; t--) {
+            final int code = trie.check(t);
+            if (code != DoubleArrayTrie.FREE) {
+                nextSibling[t] = firstChild[t - code];
+                firstChild[t - code] = t;
+            }
+        }
+        // 按广度优先顺序计算失败转移，处理某个状态时，深度更小的状态都已完成
+        final int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        this.fail[AhoCorasickAutomaton.ROOT_STATE] = AhoCorasickAutomaton.ROOT_STATE;
+        this.output[AhoCorasickAutomaton.ROOT_STATE] = AhoCorasickAutomaton.NONE;
+        queue[tail++] = AhoCorasickAutomaton.ROOT_STATE;
+        while (head < tail) {
+            final int s = queue[head++];
+            final int b = trie.base(s);
+            if (b == 0) {
+                continue;
+            }
+            for (int t = firstChild[b]; t != DoubleArrayTrie.FREE; t = nextSibling[t]) {
+                this.depth[t] = this.depth[s] + 1;
+                int f = AhoCorasickAutomaton.ROOT_STATE;
+                if (s != AhoCorasickAutomaton.ROOT_STATE) {
+                    // 沿父状态的失败转移查找同一字符的转移
+                    final int code = trie.check(t);
+                    int r = this.fail[s];
+                    while (true) {
+                        final int next = this.transition(r, code);
+                        if (next != AhoCorasickAutomaton.NONE) {
+                            f = next;
+                            break;
+                        }
+                        if (r == AhoCorasickAutomaton.ROOT_STATE) {
+                            break;
+                        }
+                        r = this.fail[r];
+                    }
+                }
+                this.fail[t] = f;
+                this.output[t] = trie.nodeState(f) == 1 ? f : this.output[f];
+                this.prefix[t] = (trie.base(t) != 0) || this.prefix[f];
+                queue[tail++] = t;
+            }
+        }
+    }
+
+    /**
+     * 为主词典编译自动机
+     * 
+     * @param mainDict
+     *            主词典
+     * @param compact
+     *            主词典是否压缩为DAWG，压缩时先展开为普通的双数组
+     * @return AhoCorasickAutomaton
+     */
+    static AhoCorasickAutomaton build(final DoubleArrayTrie mainDict, final boolean compact) {
+        if (compact) {
+            final DoubleArrayTrie trie = DoubleArrayTrie.build(DictSegment.build(mainDict.toWordList()), false);
+            trie.buildRootTable();
+            return new AhoCorasickAutomaton(trie);
+        }
+        return new AhoCorasickAutomaton(mainDict);
+    }
+
+    /**
+     * 估算占用的字节数
+     * 
+     * @param mainDict
+     *            主词典，与主词典共用的双数组不计入
+     * @return long
+     */
+    long byteSize(final DoubleArrayTrie mainDict) {
+        final int size = this.trie.size();
+        final long bytes = DictionaryStatistics.objectBytes(4 * 5) + (DictionaryStatistics.arrayBytes(size, 4) * 3) + DictionaryStatistics.arrayBytes(size, 1);
+        return this.trie == mainDict ? bytes : bytes + this.trie.retainedBytes();
+    }
+
+    /**
+     * 读入一个字符，转移到新的状态
+     * 新状态对应已读入文本最长的、同时是词典中某个词前缀的后缀
+     * 
+     * @param state
+     *            当前状态
+     * @param c
+     *            读入的字符
+     * @return int 新状态，没有匹配的后缀时为根状态
+     */
+    public int next(int state, final char c) {
+        final int code = this.trie.charCode(c);
+        if (code == 0) {
+            return AhoCorasickAutomaton.ROOT_STATE;
+        }
+        while (state != AhoCorasickAutomaton.ROOT_STATE) {
+            final int next = this.transition(state, code);
+            if (next != AhoCorasickAutomaton.NONE) {
+                return next;
+            }
+            state = this.fail[state];
+        }
+        // 失败转移回到根状态，查表
+        return this.trie.rootChild(c);
+    }
+
+    /**
+     * 以当前字符结尾的最长的词
+     * 
+     * @param state
+     * @return int 成词状态，没有时返回NONE
+     */
+    public int firstMatch(final int state) {
+        return this.trie.nodeState(state) == 1 ? state : this.output[state];
+    }
+
+    /**
+     * 以同一字符结尾的下一个较短的词
+     * 
+     * @param matchState
+     *            firstMatch或nextMatch返回的成词状态
+     * @return int 成词状态，没有时返回NONE
+     */
+    public int nextMatch(final int matchState) {
+        return this.output[matchState];
+    }
+
+    /**
+     * 状态对应的文本长度，对成词状态即为词长
+     * 
+     * @param state
+     * @return int
+     */
+    public int depth(final int state) {
+        return this.depth[state];
+    }
+
+    /**
+     * 成词状态对应词条的词频
+     * 
+     * @param matchState
+     * @return int 词典未提供词频时为0
+     */
+    public int weight(final int matchState) {
+        return this.trie.weight(matchState);
+    }
+
+    /**
+     * 是否仍有词可能在后续字符上结束
+     * 返回false时，后续的匹配与已读入的文本无关，可以回到根状态
+     * 
+     * @param state
+     * @return boolean
+     */
+    public boolean isPrefix(final int state) {
+        return this.prefix[state];
+    }
+
+    /**
+     * 双数组上的直接转移
+     */
+    private int transition(final int state, final int code) {
+        final int b = this.trie.base(state);
+        if ((b == 0) || ((b + code) >= this.trie.size()) || (this.trie.check(b + code) != code)) {
+            return AhoCorasickAutomaton.NONE;
+        }
+        return b + code;
+    }
+}
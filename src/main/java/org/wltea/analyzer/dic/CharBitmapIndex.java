@@ -0,0 +1,102 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * 有序字符集合的两级位图索引
+ * 第一级256位记录出现过的高字节，每个出现过的高字节在第二级占一组256位，记录其下出现过的低字节
+ * 字符在集合中的序号由两级位图的秩（前面置位的个数）得到，查询只做位运算和数组读取
+ * 构造后只读
+ */
+final class CharBitmapIndex {
+    // 第一级位图，出现过的高字节
+    private final long[] high     = new long[4];
+    // 第一级位图中每个long之前出现过的高字节数目
+    private final int[]  highBase = new int[4];
+    // 第二级位图，每个出现过的高字节按顺序占4个long
+    private final long[] low;
+    // 第二级位图中每个long之前的字符数目
+    private final int[]  lowBase;
+
+    /**
+     * @param sortedChars
+     *            按顺序排列且不重复的字符
+     */
+    CharBitmapIndex(final char[] sortedChars) {
+        int groups = 0;
+        int lastHigh = -1;
+        for (final char c : sortedChars) {
+            if ((c >>> 8) != lastHigh) {
+                lastHigh = c >>> 8;
+                this.high[lastHigh >>> 6] |= 1L << lastHigh;
+                groups++;
+            }
+        }
+        for (int i = 1; i < 4; i++) {
+            this.highBase[i] = this.highBase[i - 1] + Long.bitCount(this.high[i - 1]);
+        }
+        this.low = new long[groups * 4];
+        this.lowBase = new int[groups * 4];
+        int group = -1;
+        lastHigh = -1;
+        for (final char c : sortedChars) {
+            if ((c >>> 8) != lastHigh) {
+                lastHigh = c >>> 8;
+                group++;
+            }
+            this.low[(group * 4) + ((c & 0xff) >>> 6)] |= 1L << c;
+        }
+        for (int i = 1; i < this.low.length; i++) {
+            this.lowBase[i] = this.lowBase[i - 1] + Long.bitCount(this.low[i - 1]);
+        }
+    }
+
+    /**
+     * 查询字符在集合中的序号
+     *
+     * @param c
+     * @return int 不在集合中时返回-1
+     */
+    int indexOf(final char c) {
+        final int h = c >>> 8;
+        final long highWord = this.high[h >>> 6];
+        final long highBit = 1L << h;
+        if ((highWord & highBit) == 0) {
+            return -1;
+        }
+        final int group = this.highBase[h >>> 6] + Long.bitCount(highWord & (highBit - 1));
+        final int offset = (group * 4) + ((c & 0xff) >>> 6);
+        final long lowWord = this.low[offset];
+        final long lowBit = 1L << c;
+        if ((lowWord & lowBit) == 0) {
+            return -1;
+        }
+        return this.lowBase[offset] + Long.bitCount(lowWord & (lowBit - 1));
+    }
+
+    /**
+     * 估算占用的字节数
+     *
+     * @return long
+     */
+    long byteSize() {
+        return DictionaryStatistics.objectBytes(4 * 4) + DictionaryStatistics.arrayBytes(4, 8) + DictionaryStatistics.arrayBytes(4, 4) + DictionaryStatistics.arrayBytes(this.low.length, 8) + DictionaryStatistics.arrayBytes(this.lowBase.length, 4);
+    }
+}
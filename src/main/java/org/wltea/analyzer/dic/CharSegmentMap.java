@@ -0,0 +1,160 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * 以char为键的开放寻址散列表，存储DictSegment的子节点
+ * 查询时不需要装箱和创建临时对象
+ */
+final class CharSegmentMap {
+    // 散列表最小容量，必须为2的幂
+    private static final int MIN_CAPACITY = 8;
+    // 键数组
+    private char[]           keys;
+    // 值数组，值为null的槽位为空闲
+    private DictSegment[]    values;
+    // 已存储的节点数目
+    private int              size;
+
+    CharSegmentMap(final int expectedSize) {
+        final int capacity = CharSegmentMap.capacityFor(expectedSize);
+        this.keys = new char[capacity];
+        this.values = new DictSegment[capacity];
+    }
+
+    /**
+     * 按负载因子0.5计算2的幂容量
+     */
+    private static int capacityFor(final int expectedSize) {
+        int capacity = CharSegmentMap.MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * 散列函数，打散相邻的汉字编码
+     */
+    private static int hash(final char key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 估算散列表占用的字节数，不含子节点本身
+     * 
+     * @return long
+     */
+    long byteSize() {
+        return DictionaryStatistics.objectBytes(4 + 4 + 4) + DictionaryStatistics.arrayBytes(this.keys.length, 2) + DictionaryStatistics.arrayBytes(this.values.length, 4);
+    }
+
+    /**
+     * 查找字符对应的子节点
+     * 
+     * @param key
+     * @return DictSegment 不存在时返回null
+     */
+    DictSegment get(final char key) {
+        final char[] keyTable = this.keys;
+        final DictSegment[] valueTable = this.values;
+        final int mask = valueTable.length - 1;
+        int i = CharSegmentMap.hash(key) & mask;
+        DictSegment ds;
+        while ((ds = valueTable[i]) != null) {
+            if (keyTable[i] == key) {
+                return ds;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 存储子节点
+     * 
+     * @param key
+     * @param segment
+     */
+    void put(final char key, final DictSegment segment) {
+        if ((this.size + 1) * 2 > this.values.length) {
+            this.rehash(this.values.length << 1);
+        }
+        if (CharSegmentMap.insert(this.keys, this.values, key, segment)) {
+            this.size++;
+        }
+    }
+
+    /**
+     * 返回全部子节点，顺序不确定
+     * 
+     * @return DictSegment[]
+     */
+    DictSegment[] values() {
+        final DictSegment[] result = new DictSegment[this.size];
+        int n = 0;
+        for (final DictSegment ds : this.values) {
+            if (ds != null) {
+                result[n++] = ds;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 扩容，新表填充完成后再替换引用
+     */
+    private void rehash(final int capacity) {
+        final char[] newKeys = new char[capacity];
+        final DictSegment[] newValues = new DictSegment[capacity];
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.values[i] != null) {
+                CharSegmentMap.insert(newKeys, newValues, this.keys[i], this.values[i]);
+            }
+        }
+        this.keys = newKeys;
+        this.values = newValues;
+    }
+
+    /**
+     * 写入槽位
+     * 
+     * @return boolean 新增返回true，替换已有的键返回false
+     */
+    private static boolean insert(final char[] keyTable, final DictSegment[] valueTable, final char key, final DictSegment segment) {
+        final int mask = valueTable.length - 1;
+        int i = CharSegmentMap.hash(key) & mask;
+        while (valueTable[i] != null) {
+            if (keyTable[i] == key) {
+                valueTable[i] = segment;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keyTable[i] = key;
+        valueTable[i] = segment;
+        return true;
+    }
+}
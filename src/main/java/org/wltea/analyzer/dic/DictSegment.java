@@ -20,40 +20,103 @@
 package org.wltea.analyzer.dic;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 词典树分段，表示词典树的一个分枝
+ * 每棵词典树只在加载和重新编译词典时由单个线程构造，编译为双数组Trie后再发布给分词线程，因此不做同步
+ * 节点字符以char存储，不同的词典树之间没有共享的状态，可以在不同线程中同时构造
+ * 批量构造时按每个节点实际的子节点数目选择存储方式：
+ * 唯一子节点直接引用；少量子节点使用有序char数组；较多子节点使用两级位图索引；子节点极多的节点（通常是根节点）使用以char为下标的数组
+ * 构造后追加词条时，位图索引的节点改为散列表存储，其他存储方式按需扩容或转换
  */
 class DictSegment implements Comparable<DictSegment> {
-    // 公用字典表，存储汉字
-    private static final Map<Character, Character> charMap            = new HashMap<Character, Character>(16, 0.95f);
-    // 数组大小上限
-    private static final int                       ARRAY_LENGTH_LIMIT = 3;
-    // Map存储结构
-    private Map<Character, DictSegment>            childrenMap;
-    // 数组方式存储结构
-    private DictSegment[]                          childrenArray;
+    // 子节点存储方式：没有子节点
+    static final byte        NO_CHILDREN            = 0;
+    // 子节点存储方式：唯一子节点
+    static final byte        SINGLE_CHILD           = 1;
+    // 子节点存储方式：有序char数组
+    static final byte        ARRAY_CHILDREN         = 2;
+    // 子节点存储方式：两级位图索引
+    static final byte        BITMAP_CHILDREN        = 3;
+    // 子节点存储方式：以char为下标的数组
+    static final byte        DIRECT_CHILDREN        = 4;
+    // 子节点存储方式：散列表
+    static final byte        MAP_CHILDREN           = 5;
+    // 有序char数组存储的子节点数目上限
+    private static final int ARRAY_LENGTH_LIMIT     = 8;
+    // 使用以char为下标的数组存储的子节点数目下限
+    private static final int DIRECT_CHILDREN_LIMIT  = 2048;
+    // 以char为下标的数组长度
+    private static final int DIRECT_CHILDREN_LENGTH = 65536;
+    // 唯一的子节点
+    private DictSegment      onlyChild;
+    // 有序存储的子节点，以char为下标存储时长度为65536
+    private DictSegment[]    childrenArray;
+    // 子节点的索引，各种存储方式互斥，共用一个字段以减小节点：
+    // 有序数组存储时为与childrenArray一一对应的char[]，位图索引存储时为CharBitmapIndex，Map存储时为CharSegmentMap
+    private Object           childrenKeys;
     // 当前节点上存储的字符
-    private Character                              nodeChar;
+    private final char       nodeChar;
+    // 子节点存储方式
+    private byte             childrenType           = DictSegment.NO_CHILDREN;
     // 当前节点存储的Segment数目
-    // storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
-    private int                                    storeSize          = 0;
+    private int              storeSize              = 0;
     // 当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
-    private int                                    nodeState          = 0;
+    private int              nodeState              = 0;
+    // 以当前节点结尾的词的词频，词典未提供词频时为0
+    private int              weight                 = 0;
 
-    DictSegment(final Character nodeChar) {
-        if (nodeChar == null) {
-            throw new IllegalArgumentException("参数为空异常，字符不能为空");
-        }
+    DictSegment(final char nodeChar) {
         this.nodeChar = nodeChar;
     }
 
-    Character getNodeChar() {
+    char getNodeChar() {
         return this.nodeChar;
     }
 
+    int getNodeState() {
+        return this.nodeState;
+    }
+
+    int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * 子节点存储方式
+     * 
+     * @return byte NO_CHILDREN、SINGLE_CHILD、ARRAY_CHILDREN、BITMAP_CHILDREN、DIRECT_CHILDREN或MAP_CHILDREN
+     */
+    byte getChildrenType() {
+        return this.childrenType;
+    }
+
+    /**
+     * 估算节点及其子节点容器占用的字节数，不含子节点本身
+     * 
+     * @return long
+     */
+    long byteSize() {
+        long bytes = DictionaryStatistics.objectBytes((4 * 3) + 2 + 1 + 4 + 4 + 4);
+        if (this.childrenArray != null) {
+            bytes += DictionaryStatistics.arrayBytes(this.childrenArray.length, 4);
+        }
+        switch (this.childrenType) {
+            case ARRAY_CHILDREN:
+                bytes += DictionaryStatistics.arrayBytes(((char[]) this.childrenKeys).length, 2);
+                break;
+            case BITMAP_CHILDREN:
+                bytes += ((CharBitmapIndex) this.childrenKeys).byteSize();
+                break;
+            case MAP_CHILDREN:
+                bytes += ((CharSegmentMap) this.childrenKeys).byteSize();
+                break;
+            default:
+                break;
+        }
+        return bytes;
+    }
+
     /*
      * 判断是否有下一个节点
      */
@@ -61,6 +124,61 @@ class DictSegment implements Comparable<DictSegment> {
         return this.storeSize > 0;
     }
 
+    /**
+     * 按字符顺序返回当前节点的全部子节点
+     * 
+     * @return DictSegment[]
+     */
+    DictSegment[] getChildren() {
+        switch (this.childrenType) {
+            case SINGLE_CHILD:
+                return new DictSegment[] { this.onlyChild };
+            case ARRAY_CHILDREN:
+            case BITMAP_CHILDREN:
+                return Arrays.copyOf(this.childrenArray, this.storeSize);
+            case DIRECT_CHILDREN:
+                final DictSegment[] direct = new DictSegment[this.storeSize];
+                int n = 0;
+                for (final DictSegment ds : this.childrenArray) {
+                    if (ds != null) {
+                        direct[n++] = ds;
+                    }
+                }
+                return direct;
+            case MAP_CHILDREN:
+                final DictSegment[] children = ((CharSegmentMap) this.childrenKeys).values();
+                Arrays.sort(children);
+                return children;
+            default:
+                return new DictSegment[0];
+        }
+    }
+
+    /**
+     * 查找字符对应的子节点
+     * 
+     * @param keyChar
+     * @return DictSegment 不存在时返回null
+     */
+    private DictSegment getChild(final char keyChar) {
+        switch (this.childrenType) {
+            case SINGLE_CHILD:
+                return this.onlyChild.nodeChar == keyChar ? this.onlyChild : null;
+            case ARRAY_CHILDREN:
+                final int position = DictSegment.search((char[]) this.childrenKeys, this.storeSize, keyChar);
+                return position >= 0 ? this.childrenArray[position] : null;
+            case BITMAP_CHILDREN:
+                final int index = ((CharBitmapIndex) this.childrenKeys).indexOf(keyChar);
+                return index >= 0 ? this.childrenArray[index] : null;
+            case DIRECT_CHILDREN:
+                return this.childrenArray[keyChar];
+            case MAP_CHILDREN:
+                return ((CharSegmentMap) this.childrenKeys).get(keyChar);
+            default:
+                return null;
+        }
+    }
+
     /**
      * 匹配词段
      * 
@@ -104,23 +222,8 @@ class DictSegment implements Comparable<DictSegment> {
         }
         // 设置hit的当前处理位置
         searchHit.setEnd(begin);
-        final Character keyChar = new Character(charArray[begin]);
-        DictSegment ds = null;
-        // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
-        final DictSegment[] segmentArray = this.childrenArray;
-        final Map<Character, DictSegment> segmentMap = this.childrenMap;
         // STEP1 在节点中查找keyChar对应的DictSegment
-        if (segmentArray != null) {
-            // 在数组中查找
-            final DictSegment keySegment = new DictSegment(keyChar);
-            final int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
-        } else if (segmentMap != null) {
-            // 在map中查找
-            ds = segmentMap.get(keyChar);
-        }
+        final DictSegment ds = this.getChild(charArray[begin]);
         // STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
         if (ds != null) {
             if (length > 1) {
@@ -131,6 +234,7 @@ class DictSegment implements Comparable<DictSegment> {
                 if (ds.nodeState == 1) {
                     // 添加HIT状态为完全匹配
                     searchHit.setMatch();
+                    searchHit.setWeight(ds.weight);
                 }
                 if (ds.hasNextNode()) {
                     // 添加HIT状态为前缀匹配
@@ -145,13 +249,128 @@ class DictSegment implements Comparable<DictSegment> {
         return searchHit;
     }
 
+    /**
+     * 由已排序、去重的词条批量构造词典树
+     * 每个节点的子节点一次建立完成，并按实际子节点数目选择存储方式
+     * 
+     * @param sortedWords
+     *            按字符顺序排序且不含重复的词条
+     * @return DictSegment 词典树的根节点
+     */
+    static DictSegment build(final String[] sortedWords) {
+        return DictSegment.build(new WordList(sortedWords, null));
+    }
+
+    /**
+     * 由已排序、去重的词条及其词频批量构造词典树
+     * 
+     * @param wordList
+     *            按字符顺序排序且不含重复的词条
+     * @return DictSegment 词典树的根节点
+     */
+    static DictSegment build(final WordList wordList) {
+        final DictSegment root = new DictSegment((char) 0);
+        root.buildChildren(wordList, 0, wordList.size(), 0);
+        return root;
+    }
+
+    /**
+     * 建立当前节点的子节点
+     * words[begin, end)中的词条都以当前节点的路径为前缀，路径长度为depth
+     */
+    private void buildChildren(final WordList wordList, int begin, final int end, final int depth) {
+        final String[] words = wordList.words;
+        // 以当前节点结尾的词排在最前面，其状态已由父节点设置
+        while ((begin < end) && (words[begin].length() == depth)) {
+            begin++;
+        }
+        // 统计子节点数目，相同字符的词条在排序后相邻
+        int count = 0;
+        for (int i = begin; i < end; count++) {
+            i = DictSegment.nextGroup(words, i, end, depth);
+        }
+        if (count == 0) {
+            return;
+        }
+        final DictSegment[] children = new DictSegment[count];
+        for (int i = begin, n = 0; i < end; n++) {
+            final int next = DictSegment.nextGroup(words, i, end, depth);
+            final DictSegment ds = new DictSegment(words[i].charAt(depth));
+            if (words[i].length() == (depth + 1)) {
+                ds.nodeState = 1;
+                ds.weight = wordList.weight(i);
+            }
+            ds.buildChildren(wordList, i, next, depth + 1);
+            children[n] = ds;
+            i = next;
+        }
+        this.setChildren(children);
+    }
+
+    /**
+     * 按子节点数目选择存储方式
+     * 
+     * @param children
+     *            按字符顺序排列的全部子节点
+     */
+    private void setChildren(final DictSegment[] children) {
+        final int count = children.length;
+        if (count == 1) {
+            this.childrenType = DictSegment.SINGLE_CHILD;
+            this.onlyChild = children[0];
+        } else if (count >= DictSegment.DIRECT_CHILDREN_LIMIT) {
+            this.childrenType = DictSegment.DIRECT_CHILDREN;
+            this.childrenArray = new DictSegment[DictSegment.DIRECT_CHILDREN_LENGTH];
+            for (final DictSegment child : children) {
+                this.childrenArray[child.nodeChar] = child;
+            }
+        } else {
+            final char[] chars = new char[count];
+            for (int i = 0; i < count; i++) {
+                chars[i] = children[i].nodeChar;
+            }
+            this.childrenArray = children;
+            if (count <= DictSegment.ARRAY_LENGTH_LIMIT) {
+                this.childrenType = DictSegment.ARRAY_CHILDREN;
+                this.childrenKeys = chars;
+            } else {
+                this.childrenType = DictSegment.BITMAP_CHILDREN;
+                this.childrenKeys = new CharBitmapIndex(chars);
+            }
+        }
+        this.storeSize = count;
+    }
+
+    /**
+     * 返回下一个在depth位置上字符不同的词条位置
+     */
+    private static int nextGroup(final String[] words, final int begin, final int end, final int depth) {
+        final char c = words[begin].charAt(depth);
+        int i = begin + 1;
+        while ((i < end) && (words[i].charAt(depth) == c)) {
+            i++;
+        }
+        return i;
+    }
+
     /**
      * 加载填充词典片段
      * 
      * @param charArray
      */
     void fillSegment(final char[] charArray) {
-        this.fillSegment(charArray, 0, charArray.length, 1);
+        this.fillSegment(charArray, 0, charArray.length, 1, 0);
+    }
+
+    /**
+     * 加载填充词典片段，同时设置词频
+     * 
+     * @param charArray
+     * @param weight
+     *            词频，为0时保留原有的词频
+     */
+    void fillSegment(final char[] charArray, final int weight) {
+        this.fillSegment(charArray, 0, charArray.length, 1, weight);
     }
 
     /**
@@ -160,7 +379,7 @@ class DictSegment implements Comparable<DictSegment> {
      * @param charArray
      */
     void disableSegment(final char[] charArray) {
-        this.fillSegment(charArray, 0, charArray.length, 0);
+        this.fillSegment(charArray, 0, charArray.length, 0, 0);
     }
 
     /**
@@ -170,27 +389,24 @@ class DictSegment implements Comparable<DictSegment> {
      * @param begin
      * @param length
      * @param enabled
+     * @param weight
      */
-    private synchronized void fillSegment(final char[] charArray, final int begin, final int length, final int enabled) {
-        // 获取字典表中的汉字对象
-        final Character beginChar = new Character(charArray[begin]);
-        Character keyChar = DictSegment.charMap.get(beginChar);
-        // 字典中没有该字，则将其添加入字典
-        if (keyChar == null) {
-            DictSegment.charMap.put(beginChar, beginChar);
-            keyChar = beginChar;
-        }
+    private void fillSegment(final char[] charArray, final int begin, final int length, final int enabled, final int weight) {
+        final char keyChar = charArray[begin];
         // 搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
         final DictSegment ds = this.lookforSegment(keyChar, enabled);
         if (ds != null) {
             // 处理keyChar对应的segment
             if (length > 1) {
                 // 词元还没有完全加入词典树
-                ds.fillSegment(charArray, begin + 1, length - 1, enabled);
+                ds.fillSegment(charArray, begin + 1, length - 1, enabled, weight);
             } else if (length == 1) {
                 // 已经是词元的最后一个char,设置当前节点状态为enabled，
                 // enabled=1表明一个完整的词，enabled=0表示从词典中屏蔽当前词
                 ds.nodeState = enabled;
+                if (weight > 0) {
+                    ds.weight = weight;
+                }
             }
         }
     }
@@ -203,97 +419,104 @@ class DictSegment implements Comparable<DictSegment> {
      *            =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
      * @return
      */
-    private DictSegment lookforSegment(final Character keyChar, final int create) {
-        DictSegment ds = null;
-        if (this.storeSize <= DictSegment.ARRAY_LENGTH_LIMIT) {
-            // 获取数组容器，如果数组未创建则创建数组
-            final DictSegment[] segmentArray = this.getChildrenArray();
-            // 搜寻数组
-            final DictSegment keySegment = new DictSegment(keyChar);
-            final int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-            if (position >= 0) {
-                ds = segmentArray[position];
-            }
-            // 遍历数组后没有找到对应的segment
-            if ((ds == null) && (create == 1)) {
-                ds = keySegment;
+    private DictSegment lookforSegment(final char keyChar, final int create) {
+        DictSegment ds = this.getChild(keyChar);
+        if ((ds != null) || (create != 1)) {
+            return ds;
+        }
+        ds = new DictSegment(keyChar);
+        switch (this.childrenType) {
+            case NO_CHILDREN:
+                this.childrenType = DictSegment.SINGLE_CHILD;
+                this.onlyChild = ds;
+                break;
+            case SINGLE_CHILD:
+                // 改为有序数组存储
+                this.childrenType = DictSegment.ARRAY_CHILDREN;
+                final char[] chars = new char[DictSegment.ARRAY_LENGTH_LIMIT];
+                chars[0] = this.onlyChild.nodeChar;
+                this.childrenArray = new DictSegment[DictSegment.ARRAY_LENGTH_LIMIT];
+                this.childrenArray[0] = this.onlyChild;
+                this.childrenKeys = chars;
+                this.onlyChild = null;
+                this.insert(ds);
+                break;
+            case ARRAY_CHILDREN:
                 if (this.storeSize < DictSegment.ARRAY_LENGTH_LIMIT) {
-                    // 数组容量未满，使用数组存储
-                    segmentArray[this.storeSize] = ds;
-                    // segment数目+1
-                    this.storeSize++;
-                    Arrays.sort(segmentArray, 0, this.storeSize);
+                    this.insert(ds);
                 } else {
                     // 数组容量已满，切换Map存储
-                    // 获取Map容器，如果Map未创建,则创建Map
-                    final Map<Character, DictSegment> segmentMap = this.getChildrenMap();
-                    // 将数组中的segment迁移到Map中
-                    this.migrate(segmentArray, segmentMap);
-                    // 存储新的segment
-                    segmentMap.put(keyChar, ds);
-                    // segment数目+1 ， 必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-                    this.storeSize++;
-                    // 释放当前的数组引用
-                    this.childrenArray = null;
+                    this.migrate(ds);
                 }
-            }
-        } else {
-            // 获取Map容器，如果Map未创建,则创建Map
-            final Map<Character, DictSegment> segmentMap = this.getChildrenMap();
-            // 搜索Map
-            ds = segmentMap.get(keyChar);
-            if ((ds == null) && (create == 1)) {
-                // 构造新的segment
-                ds = new DictSegment(keyChar);
-                segmentMap.put(keyChar, ds);
-                // 当前节点存储segment数目+1
-                this.storeSize++;
-            }
+                break;
+            case BITMAP_CHILDREN:
+                // 位图索引构造后不能修改，切换Map存储
+                this.migrate(ds);
+                break;
+            case DIRECT_CHILDREN:
+                this.childrenArray[keyChar] = ds;
+                break;
+            default:
+                ((CharSegmentMap) this.childrenKeys).put(keyChar, ds);
+                break;
         }
+        this.storeSize++;
         return ds;
     }
 
     /**
-     * 获取数组容器
-     * 线程同步方法
+     * 按字符顺序插入有序数组，子节点数目由调用者更新
      */
-    private DictSegment[] getChildrenArray() {
-        if (this.childrenArray == null) {
-            synchronized (this) {
-                if (this.childrenArray == null) {
-                    this.childrenArray = new DictSegment[DictSegment.ARRAY_LENGTH_LIMIT];
-                }
-            }
+    private void insert(final DictSegment segment) {
+        char[] chars = (char[]) this.childrenKeys;
+        if (this.storeSize == this.childrenArray.length) {
+            // 批量构造的数组按实际数目分配，需要扩容
+            this.childrenArray = Arrays.copyOf(this.childrenArray, DictSegment.ARRAY_LENGTH_LIMIT);
+            chars = Arrays.copyOf(chars, DictSegment.ARRAY_LENGTH_LIMIT);
+            this.childrenKeys = chars;
         }
-        return this.childrenArray;
+        final int insertion = -(DictSegment.search(chars, this.storeSize, segment.nodeChar) + 1);
+        System.arraycopy(this.childrenArray, insertion, this.childrenArray, insertion + 1, this.storeSize - insertion);
+        System.arraycopy(chars, insertion, chars, insertion + 1, this.storeSize - insertion);
+        this.childrenArray[insertion] = segment;
+        chars[insertion] = segment.nodeChar;
     }
 
     /**
-     * 获取Map容器
-     * 线程同步方法
+     * 将现有的子节点和新的子节点迁移到Map中，子节点数目由调用者更新
+     * 
+     * @param segment
      */
-    private Map<Character, DictSegment> getChildrenMap() {
-        if (this.childrenMap == null) {
-            synchronized (this) {
-                if (this.childrenMap == null) {
-                    this.childrenMap = new HashMap<Character, DictSegment>(DictSegment.ARRAY_LENGTH_LIMIT * 2, 0.8f);
-                }
-            }
+    private void migrate(final DictSegment segment) {
+        final CharSegmentMap segmentMap = new CharSegmentMap(this.storeSize + 1);
+        for (int i = 0; i < this.storeSize; i++) {
+            segmentMap.put(this.childrenArray[i].nodeChar, this.childrenArray[i]);
         }
-        return this.childrenMap;
+        segmentMap.put(segment.nodeChar, segment);
+        this.childrenKeys = segmentMap;
+        this.childrenType = DictSegment.MAP_CHILDREN;
+        // 释放数组
+        this.childrenArray = null;
     }
 
     /**
-     * 将数组中的segment迁移到Map中
+     * 在有序的子节点字符中查找字符
+     * 子节点很少，顺序比较连续存放的字符
      * 
-     * @param segmentArray
+     * @param chars
+     * @param size
+     * @param keyChar
+     * @return int 找到时返回位置，否则返回-(插入位置+1)
      */
-    private void migrate(final DictSegment[] segmentArray, final Map<Character, DictSegment> segmentMap) {
-        for (final DictSegment segment : segmentArray) {
-            if (segment != null) {
-                segmentMap.put(segment.nodeChar, segment);
+    private static int search(final char[] chars, final int size, final char keyChar) {
+        for (int i = 0; i < size; i++) {
+            if (chars[i] == keyChar) {
+                return i;
+            } else if (chars[i] > keyChar) {
+                return -(i + 1);
             }
         }
+        return -(size + 1);
     }
 
     /**
@@ -305,6 +528,6 @@ class DictSegment implements Comparable<DictSegment> {
     @Override
     public int compareTo(final DictSegment o) {
         // 对当前节点存储的char进行比较
-        return this.nodeChar.compareTo(o.nodeChar);
+        return this.nodeChar - o.nodeChar;
     }
 }
@@ -20,44 +20,134 @@
 package org.wltea.analyzer.dic;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.wltea.analyzer.cfg.AbstractConfiguration;
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.ExtendedConfiguration;
 
 /**
- * 词典管理类,单子模式
+ * 词典管理类
+ * 每个配置对应一个词典实例，相同配置共享；initial/getSingleton保留进程级默认词典
  */
 public class Dictionary {
+    /*
+     * 读取增量日志的间隔秒数
+     */
+    private static final long                                      DELTA_INTERVAL = 5;
     /*
      * 词典单子实例
      */
-    private static Dictionary singleton;
+    private static volatile Dictionary                             singleton;
     /*
-     * 主词典对象
+     * 按配置缓存的词典实例，加载中的词典也在其中，请求相同配置的线程等待同一次加载
      */
-    private DictSegment       _MainDict;
+    private static final ConcurrentMap<String, Future<Dictionary>> instances      = new ConcurrentHashMap<String, Future<Dictionary>>();
     /*
-     * 停止词词典
+     * 主词典对象，编译为双数组Trie，更新时整体替换
      */
-    private DictSegment       _StopWordDict;
+    private volatile DoubleArrayTrie                               _MainDict;
+    /*
+     * 停止词词典，按词长分组的完美散列
+     */
+    private volatile StopWordSet                                   _StopWordDict;
+    /*
+     * 停止词预过滤器
+     */
+    private volatile StopWordFilter                                _StopWordFilter;
     /*
      * 量词词典
      */
-    private DictSegment       _QuantifierDict;
+    private volatile DoubleArrayTrie                               _QuantifierDict;
+    /*
+     * 主词典的Aho-Corasick自动机，随主词典一起更新，未启用时为null
+     */
+    private volatile AhoCorasickAutomaton                          _MainAutomaton;
+    /*
+     * 主词典已应用的增量日志版本号，在更新锁内随主词典一起更新
+     */
+    private volatile long                                          version;
+    /*
+     * 词典增量日志，未配置增量日志目录时为null
+     */
+    private DictionaryDeltaLog                                     deltaLog;
     /**
      * 配置对象
      */
-    private Configuration     cfg;
+    private ExtendedConfiguration                                  cfg;
+    /*
+     * 等待编译的词条更新
+     */
+    private final Queue<WordUpdate>                                pendingUpdates = new ConcurrentLinkedQueue<WordUpdate>();
+    /*
+     * 已编译进主词典的addWords/disableWords更新，按编译顺序保存，重新加载词典文件后重放
+     * 只在更新锁内读写
+     */
+    private final List<WordUpdate>                                 runtimeUpdates = new ArrayList<WordUpdate>();
+    /*
+     * 更新锁，只在更新线程之间互斥，分词线程不使用
+     */
+    private final Object                                           updateLock     = new Object();
 
-    private Dictionary(final Configuration cfg) {
+    private Dictionary(final ExtendedConfiguration cfg) {
         this.cfg = cfg;
-        this.loadMainDict();
-        this.loadStopWordDict();
-        this.loadQuantifierDict();
+        final String snapshotPath = cfg.getDictionarySnapshot();
+        if (snapshotPath == null) {
+            if (cfg.useMappedDictionary()) {
+                System.err.println("dict_mmap requires dict_snapshot, dictionary will be loaded into heap.");
+            }
+            this.loadDicts();
+        } else {
+            // 配置了快照文件时，优先读取快照；快照不存在或过期时解析文本词典并重新生成快照
+            final File snapshot = new File(snapshotPath);
+            final String signature = this.getDictSignature();
+            if (!this.loadSnapshot(snapshot, signature)) {
+                this.loadDicts();
+                // 快照中的停止词以双数组保存
+                final DoubleArrayTrie stopWordTrie = DoubleArrayTrie.build(DictSegment.build(this._StopWordDict.words()), cfg.useCompactDictionary());
+                DictionarySnapshot.save(snapshot, signature, new DoubleArrayTrie[] { this._MainDict, this._QuantifierDict, stopWordTrie });
+                if (cfg.useMappedDictionary()) {
+                    // 改用刚生成的快照的映射，释放堆内数组
+                    this.loadSnapshot(snapshot, signature);
+                }
+            }
+        }
+        this._StopWordFilter = new StopWordFilter(this._StopWordDict.words());
+        if (cfg.useAhoCorasickScan()) {
+            this._MainAutomaton = AhoCorasickAutomaton.build(this._MainDict, cfg.useCompactDictionary());
+        }
+        final String deltaDirectory = cfg.getDictionaryDeltaDirectory();
+        if (deltaDirectory != null) {
+            // 快照只保存基础词典，增量日志每次启动后重新应用
+            this.deltaLog = new DictionaryDeltaLog(new File(deltaDirectory));
+            this.applyDeltas();
+            this.startDeltaTailer();
+        }
+        if (cfg.useDictionaryWatch()) {
+            DictionaryWatcher.start(this, cfg.getExtDictionarys(), cfg.getExtStopWordDictionarys());
+        }
     }
 
     /**
@@ -66,21 +156,91 @@ public class Dictionary {
      * 只有当Dictionary类被实际调用时，才会开始载入词典，
      * 这将延长首次分词操作的时间
      * 该方法提供了一个在应用加载阶段就初始化字典的手段
+     * 首次调用的配置决定getSingleton返回的词典，其他配置的词典通过getInstance获取
      * 
      * @return Dictionary
      */
     public static Dictionary initial(final Configuration cfg) {
         if (Dictionary.singleton == null) {
+            // 在锁外加载，不阻塞其他配置的初始化；同时初始化时先完成的配置成为默认词典
+            final Dictionary dictionary = Dictionary.getInstance(cfg);
             synchronized (Dictionary.class) {
                 if (Dictionary.singleton == null) {
-                    Dictionary.singleton = new Dictionary(cfg);
-                    return Dictionary.singleton;
+                    Dictionary.singleton = dictionary;
                 }
             }
         }
         return Dictionary.singleton;
     }
 
+    /**
+     * 按配置获取词典实例
+     * 词典路径、扩展词典、停止词典及快照配置都相同的配置共享同一个已加载的词典
+     * 不同的配置应使用不同的快照文件
+     * 首次请求某个配置的线程加载词典，同一配置的其他请求等待其完成，其他配置的加载互不阻塞
+     * 加载失败时不缓存，下次请求重新加载
+     * 
+     * @param cfg
+     * @return Dictionary
+     */
+    public static Dictionary getInstance(final Configuration cfg) {
+        // 只实现Configuration的配置使用默认的扩展配置项
+        final ExtendedConfiguration extendedCfg = AbstractConfiguration.extend(cfg);
+        final String key = Dictionary.getCacheKey(extendedCfg);
+        Future<Dictionary> future = Dictionary.instances.get(key);
+        if (future == null) {
+            final FutureTask<Dictionary> task = new FutureTask<Dictionary>(new Callable<Dictionary>() {
+                @Override
+                public Dictionary call() {
+                    return new Dictionary(extendedCfg);
+                }
+            });
+            future = Dictionary.instances.putIfAbsent(key, task);
+            if (future == null) {
+                // 由放入任务的线程在当前线程加载
+                future = task;
+                task.run();
+            }
+        }
+        try {
+            return Dictionary.getResult(future);
+        } catch (final RuntimeException e) {
+            Dictionary.discard(key, future);
+            throw e;
+        } catch (final Error e) {
+            Dictionary.discard(key, future);
+            throw e;
+        }
+    }
+
+    /**
+     * 移除加载失败的词典，等待被中断时加载仍在进行，不移除
+     */
+    private static void discard(final String key, final Future<Dictionary> future) {
+        if (future.isDone()) {
+            Dictionary.instances.remove(key, future);
+        }
+    }
+
+    /**
+     * 计算配置对应的缓存键
+     * 只包含影响词典内容的配置项
+     */
+    private static String getCacheKey(final ExtendedConfiguration cfg) {
+        final StringBuilder key = new StringBuilder();
+        key.append(cfg.getMainDictionary()).append('|');
+        key.append(cfg.getQuantifierDicionary()).append('|');
+        key.append(cfg.getExtDictionarys()).append('|');
+        key.append(cfg.getExtStopWordDictionarys()).append('|');
+        key.append(cfg.getDictionarySnapshot()).append('|');
+        key.append(cfg.useMappedDictionary()).append('|');
+        key.append(cfg.useCompactDictionary()).append('|');
+        key.append(cfg.useAhoCorasickScan()).append('|');
+        key.append(cfg.getDictionaryDeltaDirectory()).append('|');
+        key.append(cfg.useDictionaryWatch());
+        return key.toString();
+    }
+
     /**
      * 获取词典单子实例
      * 
@@ -95,35 +255,342 @@ public class Dictionary {
 
     /**
      * 批量加载新词条
+     * 每次调用都将整个主词典还原为词典树，修改后重新编译双数组（主词典约需1秒），耗时与加入的词条数几乎无关
+     * 应将需要加载的词条收集成一个集合一次传入，不要逐个词条调用；多个线程同时调用时排队中的请求合并到一次编译
      * 
      * @param words
-     *            Collection<String>词条列表
+     *            Collection<String>词条列表，空白词条被忽略
+     * @throws IllegalStateException
+     *             词条未能编译进主词典，主词典保持不变
      */
     public void addWords(final Collection<String> words) {
         if (words != null) {
-            for (final String word : words) {
-                if (word != null) {
-                    // 批量加载词条到主内存词典中
-                    Dictionary.singleton._MainDict.fillSegment(word.trim().toLowerCase().toCharArray());
-                }
-            }
+            this.updateMainDict(new WordUpdate(words, true));
         }
     }
 
     /**
      * 批量移除（屏蔽）词条
+     * 与addWords相同，每次调用都完整地重新编译主词典，应将需要屏蔽的词条一次传入
      * 
      * @param words
+     *            Collection<String>词条列表，空白词条被忽略
+     * @throws IllegalStateException
+     *             词条未能编译进主词典，主词典保持不变
      */
     public void disableWords(final Collection<String> words) {
         if (words != null) {
-            for (final String word : words) {
-                if (word != null) {
-                    // 批量屏蔽词条
-                    Dictionary.singleton._MainDict.disableSegment(word.trim().toLowerCase().toCharArray());
+            this.updateMainDict(new WordUpdate(words, false));
+        }
+    }
+
+    /**
+     * 读取并应用增量日志中新追加的操作
+     * 后台线程定期调用，已知日志有更新时也可以直接调用，不必等待下次读取
+     * 
+     * @return long 应用后的版本号，未配置增量日志目录时返回当前版本号
+     */
+    public long applyDeltas() {
+        if (this.deltaLog == null) {
+            return this.version;
+        }
+        synchronized (this.deltaLog) {
+            final List<DictionaryDeltaLog.Entry> entries = this.deltaLog.poll(false);
+            if (!entries.isEmpty()) {
+                // 连续的同类操作合并为一个更新请求，保持加载与屏蔽的先后顺序
+                final List<WordUpdate> updates = new ArrayList<WordUpdate>();
+                int begin = 0;
+                while (begin < entries.size()) {
+                    final boolean enabled = entries.get(begin).enabled;
+                    int end = begin + 1;
+                    while ((end < entries.size()) && (entries.get(end).enabled == enabled)) {
+                        end++;
+                    }
+                    final List<String> words = new ArrayList<String>(end - begin);
+                    final int[] weights = new int[end - begin];
+                    for (int i = begin; i < end; i++) {
+                        words.add(entries.get(i).word);
+                        weights[i - begin] = entries.get(i).weight;
+                    }
+                    updates.add(new WordUpdate(words, weights, enabled, entries.get(end - 1).version));
+                    begin = end;
                 }
+                this.updateMainDict(updates);
             }
+            // 编译成功后才提交读取位置，失败时下次重新读取同样的操作
+            this.deltaLog.commit();
         }
+        return this.version;
+    }
+
+    /**
+     * 获取主词典已应用的增量日志版本号
+     * 相同的基础词典应用到相同的版本号时，各节点的词表一致
+     * 
+     * @return long 未应用任何增量日志时为0
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * 启动定期读取增量日志的后台线程
+     */
+    private void startDeltaTailer() {
+        final ScheduledExecutorService tailer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "IK Dictionary Delta");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        tailer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Dictionary.this.applyDeltas();
+                } catch (final RuntimeException e) {
+                    // 异常会终止定期任务，在这里输出后等待下次读取
+                    System.err.println("Dictionary delta log applying exception.");
+                    e.printStackTrace();
+                }
+            }
+        }, Dictionary.DELTA_INTERVAL, Dictionary.DELTA_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 更新主词典
+     * 
+     * @param update
+     */
+    private void updateMainDict(final WordUpdate update) {
+        this.updateMainDict(Collections.singletonList(update));
+    }
+
+    /**
+     * 更新主词典
+     * 双数组编译后只读，更新时还原为词典树，修改后编译出新的双数组，再替换主词典的引用
+     * 分词线程始终读取某一个完整的版本，不会被阻塞；已开始的前缀匹配继续使用Hit中记录的旧版本
+     * 多个线程同时更新时，持有更新锁的线程把排队中的全部更新按顺序合并到一次编译中
+     * 合并编译失败时主词典保持不变，参与合并的每个更新请求的调用线程都会得到异常
+     * 
+     * @param updates
+     *            按顺序应用的更新请求
+     * @throws IllegalStateException
+     *             更新请求未能编译进主词典
+     */
+    private void updateMainDict(final List<WordUpdate> updates) {
+        this.pendingUpdates.addAll(updates);
+        synchronized (this.updateLock) {
+            if (!updates.get(updates.size() - 1).completed) {
+                // 尚未由其他线程合并编译；队列按顺序取出，最后一个已处理时前面的也已处理
+                this.compilePendingUpdates();
+            }
+            for (final WordUpdate update : updates) {
+                if (update.failure != null) {
+                    throw new IllegalStateException("Main dictionary updating failed.", update.failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出队列中的全部更新请求，合并到一次编译中，在更新锁内调用
+     * 出现异常时，已取出的更新请求都记录该异常，不会在没有编译的情况下被当作已完成
+     */
+    private void compilePendingUpdates() {
+        final List<WordUpdate> drained = new ArrayList<WordUpdate>();
+        WordUpdate pending = null;
+        while ((pending = this.pendingUpdates.poll()) != null) {
+            drained.add(pending);
+        }
+        try {
+            final DictSegment mainDict = this._MainDict.toDictSegment();
+            long appliedVersion = this.version;
+            for (final WordUpdate update : drained) {
+                Dictionary.applyUpdate(mainDict, update);
+                appliedVersion = Math.max(appliedVersion, update.version);
+            }
+            this.replaceMainDict(mainDict, appliedVersion);
+            for (final WordUpdate update : drained) {
+                if (update.version == 0) {
+                    // 不是来自增量日志的更新，记录下来供重新加载时重放
+                    this.runtimeUpdates.add(update);
+                }
+            }
+        } catch (final RuntimeException e) {
+            Dictionary.fail(drained, e);
+        } catch (final Error e) {
+            Dictionary.fail(drained, e);
+            throw e;
+        }
+        for (final WordUpdate update : drained) {
+            update.completed = true;
+        }
+    }
+
+    /**
+     * 将一个更新请求应用到词典树
+     */
+    private static void applyUpdate(final DictSegment mainDict, final WordUpdate update) {
+        int i = 0;
+        for (final String word : update.words) {
+            final int weight = update.weight(i++);
+            if ((word == null) || "".equals(word.trim())) {
+                // 与加载词典文件一样忽略空词条
+                continue;
+            }
+            if (update.enabled) {
+                // 批量加载词条到主内存词典中
+                mainDict.fillSegment(word.trim().toLowerCase().toCharArray(), weight);
+            } else {
+                // 批量屏蔽词条
+                mainDict.disableSegment(word.trim().toLowerCase().toCharArray());
+            }
+        }
+    }
+
+    /**
+     * 记录更新请求的失败原因，并标记为已处理
+     */
+    private static void fail(final List<WordUpdate> updates, final Throwable failure) {
+        for (final WordUpdate update : updates) {
+            update.failure = failure;
+            update.completed = true;
+        }
+    }
+
+    /**
+     * 编译词典树并替换主词典，在更新锁内调用
+     * 自动机先于主词典替换，版本号在主词典替换后更新
+     * 
+     * @param mainDict
+     * @param appliedVersion
+     *            新的主词典已应用的增量日志版本号
+     */
+    private void replaceMainDict(final DictSegment mainDict, final long appliedVersion) {
+        final DoubleArrayTrie newMainDict = DoubleArrayTrie.build(mainDict, this.cfg.useCompactDictionary());
+        newMainDict.buildRootTable();
+        if (this.cfg.useAhoCorasickScan()) {
+            this._MainAutomaton = AhoCorasickAutomaton.build(newMainDict, this.cfg.useCompactDictionary());
+        }
+        this._MainDict = newMainDict;
+        this.version = appliedVersion;
+    }
+
+    /**
+     * 重新读取主词典和扩展词典文件，替换主词典
+     * 解析文件和构造词典树不持有锁；在更新锁内依次重新应用全部增量日志和已编译的addWords/disableWords更新后再编译
+     * 增量日志先于addWords/disableWords更新重放，两者之间原有的先后顺序不保留
+     */
+    void reloadMainDict() {
+        WordList words = new WordFileReader(this.cfg.getMainDictionary(), true, "Main Dictionary").call();
+        final List<String> extDictFiles = this.cfg.getExtDictionarys();
+        if (extDictFiles != null) {
+            for (final String extDictName : extDictFiles) {
+                words = WordList.merge(words, new WordFileReader(extDictName, false, "Extension Dictionary").call());
+            }
+        }
+        final DictSegment mainDict = DictSegment.build(words);
+        // 与applyDeltas相同的加锁顺序
+        final Object deltaMonitor = this.deltaLog == null ? this.updateLock : this.deltaLog;
+        synchronized (deltaMonitor) {
+            synchronized (this.updateLock) {
+                long appliedVersion = this.version;
+                if (this.deltaLog != null) {
+                    for (final DictionaryDeltaLog.Entry entry : this.deltaLog.poll(true)) {
+                        if (entry.enabled) {
+                            mainDict.fillSegment(entry.word.toCharArray(), entry.weight);
+                        } else {
+                            mainDict.disableSegment(entry.word.toCharArray());
+                        }
+                        appliedVersion = Math.max(appliedVersion, entry.version);
+                    }
+                }
+                for (final WordUpdate update : this.runtimeUpdates) {
+                    Dictionary.applyUpdate(mainDict, update);
+                }
+                this.replaceMainDict(mainDict, appliedVersion);
+                if (this.deltaLog != null) {
+                    // 替换成功后才提交读取位置，失败时保留原主词典对应的位置
+                    this.deltaLog.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * 重新读取扩展停止词典文件，替换停止词词典及其预过滤器
+     * 两个引用分别替换，替换过程中的判断结果与替换前或替换后之一相同
+     */
+    void reloadStopWordDict() {
+        WordList words = WordList.EMPTY;
+        final List<String> extStopWordDictFiles = this.cfg.getExtStopWordDictionarys();
+        if (extStopWordDictFiles != null) {
+            for (final String extStopWordDictName : extStopWordDictFiles) {
+                words = WordList.merge(words, new WordFileReader(extStopWordDictName, false, "Extension Stop word Dictionary").call());
+            }
+        }
+        final StopWordSet stopWordDict = new StopWordSet(words.words);
+        final StopWordFilter stopWordFilter = new StopWordFilter(words.words);
+        this._StopWordDict = stopWordDict;
+        this._StopWordFilter = stopWordFilter;
+    }
+
+    /**
+     * 获取主词典的Aho-Corasick自动机
+     * 自动机只读，主词典更新后返回新的自动机，已开始的扫描可以继续使用旧的自动机
+     * 
+     * @return AhoCorasickAutomaton 未启用ac_scan时返回null
+     */
+    public AhoCorasickAutomaton getMainAutomaton() {
+        return this._MainAutomaton;
+    }
+
+    /**
+     * 主词典全部词条的词频之和
+     * 
+     * @return long 词典未提供词频时为0
+     */
+    public long getTotalWeight() {
+        return this._MainDict.totalWeight();
+    }
+
+    /**
+     * 统计主词典
+     * 统计时将双数组还原为词典树，耗时与一次词条更新相当，不宜在分词过程中频繁调用
+     * 占用字节数包含Aho-Corasick自动机
+     * 
+     * @return DictionaryStatistics
+     */
+    public DictionaryStatistics getMainDictStatistics() {
+        final DoubleArrayTrie mainDict = this._MainDict;
+        final AhoCorasickAutomaton automaton = this._MainAutomaton;
+        final long retainedBytes = mainDict.retainedBytes() + (automaton == null ? 0 : automaton.byteSize(mainDict));
+        return DictionaryStatistics.of("main", mainDict.toDictSegment(), mainDict.size(), retainedBytes);
+    }
+
+    /**
+     * 统计量词词典
+     * 
+     * @return DictionaryStatistics
+     */
+    public DictionaryStatistics getQuantifierDictStatistics() {
+        final DoubleArrayTrie quantifierDict = this._QuantifierDict;
+        return DictionaryStatistics.of("quantifier", quantifierDict.toDictSegment(), quantifierDict.size(), quantifierDict.retainedBytes());
+    }
+
+    /**
+     * 统计停止词词典
+     * 停止词以散列集合存储，节点统计按同样的词条构造的词典树计算，占用字节数包含预过滤器
+     * 
+     * @return DictionaryStatistics
+     */
+    public DictionaryStatistics getStopWordDictStatistics() {
+        final StopWordSet stopWordDict = this._StopWordDict;
+        final long retainedBytes = stopWordDict.byteSize() + this._StopWordFilter.byteSize();
+        return DictionaryStatistics.of("stopword", DictSegment.build(stopWordDict.words()), 0, retainedBytes);
     }
 
     /**
@@ -133,7 +600,7 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(final char[] charArray) {
-        return Dictionary.singleton._MainDict.match(charArray);
+        return this._MainDict.match(charArray, 0, charArray.length, null);
     }
 
     /**
@@ -145,7 +612,23 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInMainDict(final char[] charArray, final int begin, final int length) {
-        return Dictionary.singleton._MainDict.match(charArray, begin, length);
+        return this._MainDict.match(charArray, begin, length, null);
+    }
+
+    /**
+     * 检索匹配主词典
+     * 复用调用者提供的Hit，不创建新对象
+     * 
+     * @param charArray
+     * @param begin
+     * @param length
+     * @param reuse
+     *            被重置并用于保存匹配结果的Hit
+     * @return Hit 匹配结果描述，即reuse
+     */
+    public Hit matchInMainDict(final char[] charArray, final int begin, final int length, final Hit reuse) {
+        reuse.reset(begin);
+        return this._MainDict.match(charArray, begin, length, reuse);
     }
 
     /**
@@ -157,7 +640,23 @@ public class Dictionary {
      * @return Hit 匹配结果描述
      */
     public Hit matchInQuantifierDict(final char[] charArray, final int begin, final int length) {
-        return Dictionary.singleton._QuantifierDict.match(charArray, begin, length);
+        return this._QuantifierDict.match(charArray, begin, length, null);
+    }
+
+    /**
+     * 检索匹配量词词典
+     * 复用调用者提供的Hit，不创建新对象
+     * 
+     * @param charArray
+     * @param begin
+     * @param length
+     * @param reuse
+     *            被重置并用于保存匹配结果的Hit
+     * @return Hit 匹配结果描述，即reuse
+     */
+    public Hit matchInQuantifierDict(final char[] charArray, final int begin, final int length, final Hit reuse) {
+        reuse.reset(begin);
+        return this._QuantifierDict.match(charArray, begin, length, reuse);
     }
 
     /**
@@ -169,12 +668,17 @@ public class Dictionary {
      * @return Hit
      */
     public Hit matchWithHit(final char[] charArray, final int currentIndex, final Hit matchedHit) {
+        final DoubleArrayTrie trie = matchedHit.getMatchedTrie();
+        if (trie != null) {
+            return trie.matchWithHit(charArray, currentIndex, matchedHit);
+        }
         final DictSegment ds = matchedHit.getMatchedDictSegment();
         return ds.match(charArray, currentIndex, 1, matchedHit);
     }
 
     /**
      * 判断是否是停止词
+     * 先经过预过滤器，只有可能是停止词时才查询停止词词典
      * 
      * @param charArray
      * @param begin
@@ -182,168 +686,318 @@ public class Dictionary {
      * @return boolean
      */
     public boolean isStopWord(final char[] charArray, final int begin, final int length) {
-        return Dictionary.singleton._StopWordDict.match(charArray, begin, length).isMatch();
+        if (!this._StopWordFilter.mightContain(charArray, begin, length)) {
+            return false;
+        }
+        return this._StopWordDict.contains(charArray, begin, length);
     }
 
     /**
-     * 加载主词典及扩展词典
+     * 解析文本词典并编译
+     * 每个词典文件在线程池中各自解析、排序，三个词典各自的编译任务等待所需文件解析完成后填充词典树并编译为双数组Trie
+     * 解析任务先于编译任务提交，线程池按提交顺序执行，编译任务等待的解析任务总是已在其他线程上运行，不会死锁
      */
-    private void loadMainDict() {
-        // 建立一个主词典实例
-        this._MainDict = new DictSegment((char) 0);
-        // 读取主词典文件
-        InputStream is = this.getClass().getClassLoader().getResourceAsStream(this.cfg.getMainDictionary());
-        if (is == null) {
-            throw new RuntimeException("Main Dictionary not found!!!");
-        }
+    private void loadDicts() {
+        final List<String> extDictFiles = this.cfg.getExtDictionarys();
+        final List<String> extStopWordDictFiles = this.cfg.getExtStopWordDictionarys();
+        final int fileCount = 2 + (extDictFiles == null ? 0 : extDictFiles.size()) + (extStopWordDictFiles == null ? 0 : extStopWordDictFiles.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), fileCount)));
         try {
-            final BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-            String theWord = null;
-            do {
-                theWord = br.readLine();
-                if ((theWord != null) && !"".equals(theWord.trim())) {
-                    this._MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
+            // 主词典及扩展词典
+            final List<Future<WordList>> mainDictWords = new ArrayList<Future<WordList>>();
+            mainDictWords.add(executor.submit(new WordFileReader(this.cfg.getMainDictionary(), true, "Main Dictionary")));
+            if (extDictFiles != null) {
+                for (final String extDictName : extDictFiles) {
+                    System.out.println("加载扩展词典：" + extDictName);
+                    mainDictWords.add(executor.submit(new WordFileReader(extDictName, false, "Extension Dictionary")));
                 }
-            } while (theWord != null);
-        } catch (final IOException ioe) {
-            System.err.println("Main Dictionary loading exception.");
-            ioe.printStackTrace();
-        } finally {
-            try {
-                if (is != null) {
-                    is.close();
-                    is = null;
+            }
+            // 量词词典
+            final List<Future<WordList>> quantifierDictWords = new ArrayList<Future<WordList>>();
+            quantifierDictWords.add(executor.submit(new WordFileReader(this.cfg.getQuantifierDicionary(), true, "Quantifier Dictionary")));
+            // 扩展停止词典
+            final List<Future<WordList>> stopWordDictWords = new ArrayList<Future<WordList>>();
+            if (extStopWordDictFiles != null) {
+                for (final String extStopWordDictName : extStopWordDictFiles) {
+                    System.out.println("加载扩展停止词典：" + extStopWordDictName);
+                    stopWordDictWords.add(executor.submit(new WordFileReader(extStopWordDictName, false, "Extension Stop word Dictionary")));
                 }
-            } catch (final IOException e) {
-                e.printStackTrace();
             }
+            // 编译为双数组Trie
+            final boolean compact = this.cfg.useCompactDictionary();
+            final Future<DoubleArrayTrie> mainDict = executor.submit(new TrieCompiler(mainDictWords, compact));
+            final Future<DoubleArrayTrie> quantifierDict = executor.submit(new TrieCompiler(quantifierDictWords, compact));
+            final Future<StopWordSet> stopWordDict = executor.submit(new StopWordCompiler(stopWordDictWords));
+            final DoubleArrayTrie mainTrie = Dictionary.getResult(mainDict);
+            // 只有主词典建立根状态直接查找表
+            mainTrie.buildRootTable();
+            this._MainDict = mainTrie;
+            this._QuantifierDict = Dictionary.getResult(quantifierDict);
+            this._StopWordDict = Dictionary.getResult(stopWordDict);
+        } finally {
+            executor.shutdownNow();
         }
-        // 加载扩展词典
-        this.loadExtDict();
     }
 
     /**
-     * 加载用户配置的扩展词典到主词库表
+     * 等待各词典文件解析完成，归并为一组排序且不含重复的词条
+     * 
+     * @param sources
+     * @return WordList
      */
-    private void loadExtDict() {
-        // 加载扩展词典配置
-        final List<String> extDictFiles = this.cfg.getExtDictionarys();
-        if (extDictFiles != null) {
-            InputStream is = null;
-            for (final String extDictName : extDictFiles) {
-                // 读取扩展词典文件
-                System.out.println("加载扩展词典：" + extDictName);
-                is = this.getClass().getClassLoader().getResourceAsStream(extDictName);
-                // 如果找不到扩展的字典，则忽略
-                if (is == null) {
-                    continue;
-                }
-                try {
-                    final BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-                    String theWord = null;
-                    do {
-                        theWord = br.readLine();
-                        if ((theWord != null) && !"".equals(theWord.trim())) {
-                            // 加载扩展词典数据到主内存词典中
-                            // System.out.println(theWord);
-                            this._MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                        }
-                    } while (theWord != null);
-                } catch (final IOException ioe) {
-                    System.err.println("Extension Dictionary loading exception.");
-                    ioe.printStackTrace();
-                } finally {
-                    try {
-                        if (is != null) {
-                            is.close();
-                            is = null;
-                        }
-                    } catch (final IOException e) {
-                        e.printStackTrace();
-                    }
-                }
+    private static WordList mergeSources(final List<Future<WordList>> sources) {
+        WordList words = WordList.EMPTY;
+        for (final Future<WordList> source : sources) {
+            words = WordList.merge(words, Dictionary.getResult(source));
+        }
+        return words;
+    }
+
+    /**
+     * 等待任务完成并取得结果，任务中的运行时异常和Error原样抛出
+     */
+    private static <T> T getResult(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Dictionary loading interrupted", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
             }
+            throw new RuntimeException(e.getCause());
         }
     }
 
     /**
-     * 加载用户扩展的停止词词典
+     * 读取词典快照
+     * 
+     * @param snapshot
+     * @param signature
+     * @return boolean 快照有效并已读取时返回true
      */
-    private void loadStopWordDict() {
-        // 建立一个主词典实例
-        this._StopWordDict = new DictSegment((char) 0);
-        // 加载扩展停止词典
+    private boolean loadSnapshot(final File snapshot, final String signature) {
+        final DoubleArrayTrie[] tries = DictionarySnapshot.load(snapshot, signature, 3, this.cfg.useMappedDictionary());
+        if (tries == null) {
+            return false;
+        }
+        // 快照中已保存主词典的根状态直接查找表，不会重复建立
+        tries[0].buildRootTable();
+        this._MainDict = tries[0];
+        this._QuantifierDict = tries[1];
+        // 快照中的停止词以双数组保存，读取后转换为散列集合
+        this._StopWordDict = new StopWordSet(tries[2].words());
+        return true;
+    }
+
+    /**
+     * 计算全部词典源文件的签名
+     * 由词典路径和最后修改时间组成，任何一个源文件变化都会改变签名
+     * 
+     * @return String
+     */
+    private String getDictSignature() {
+        final StringBuilder signature = new StringBuilder();
+        this.appendSignature(signature, this.cfg.getMainDictionary());
+        final List<String> extDictFiles = this.cfg.getExtDictionarys();
+        if (extDictFiles != null) {
+            for (final String extDictName : extDictFiles) {
+                this.appendSignature(signature, extDictName);
+            }
+        }
+        this.appendSignature(signature, this.cfg.getQuantifierDicionary());
         final List<String> extStopWordDictFiles = this.cfg.getExtStopWordDictionarys();
         if (extStopWordDictFiles != null) {
-            InputStream is = null;
             for (final String extStopWordDictName : extStopWordDictFiles) {
-                System.out.println("加载扩展停止词典：" + extStopWordDictName);
-                // 读取扩展词典文件
-                is = this.getClass().getClassLoader().getResourceAsStream(extStopWordDictName);
-                // 如果找不到扩展的字典，则忽略
-                if (is == null) {
-                    continue;
+                this.appendSignature(signature, extStopWordDictName);
+            }
+        }
+        // 压缩与否决定快照中双数组的内容
+        signature.append("compact:").append(this.cfg.useCompactDictionary()).append(';');
+        return signature.toString();
+    }
+
+    private void appendSignature(final StringBuilder signature, final String dictName) {
+        long lastModified = -1;
+        final URL url = this.getClass().getClassLoader().getResource(dictName);
+        if (url != null) {
+            try {
+                lastModified = url.openConnection().getLastModified();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+        signature.append(dictName).append(':').append(lastModified).append(';');
+    }
+
+    /**
+     * 词典文件解析任务
+     * 读取词典文件中的全部词条，去除空白并转为小写后排序
+     */
+    private static final class WordFileReader implements Callable<WordList> {
+        // 相对类加载器的词典路径
+        private final String  dictName;
+        // 词典文件是否必须存在
+        private final boolean required;
+        // 出错时输出的词典名称
+        private final String  label;
+
+        WordFileReader(final String dictName, final boolean required, final String label) {
+            this.dictName = dictName;
+            this.required = required;
+            this.label = label;
+        }
+
+        /**
+         * @return WordList 排序后的词条，文件不存在时返回空表
+         */
+        @Override
+        public WordList call() {
+            String[] words = new String[1024];
+            // 遇到第一个带词频的词条时才分配
+            int[] weights = null;
+            int count = 0;
+            InputStream is = Dictionary.class.getClassLoader().getResourceAsStream(this.dictName);
+            if (is == null) {
+                if (this.required) {
+                    throw new RuntimeException(this.label + " not found!!!");
                 }
-                try {
-                    final BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-                    String theWord = null;
-                    do {
-                        theWord = br.readLine();
-                        if ((theWord != null) && !"".equals(theWord.trim())) {
-                            // System.out.println(theWord);
-                            // 加载扩展停止词典数据到内存中
-                            this._StopWordDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
+                // 如果找不到扩展的字典，则忽略
+                return WordList.EMPTY;
+            }
+            try {
+                final BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
+                String theWord = null;
+                do {
+                    theWord = br.readLine();
+                    if ((theWord != null) && !"".equals(theWord.trim())) {
+                        String word = theWord.trim().toLowerCase();
+                        int weight = 0;
+                        // 词条与词频以制表符分隔
+                        final int tab = word.indexOf('\t');
+                        if (tab > 0) {
+                            weight = this.parseWeight(word.substring(tab + 1).trim(), word);
+                            word = word.substring(0, tab).trim();
+                        }
+                        if (count == words.length) {
+                            words = Arrays.copyOf(words, count * 2);
+                            if (weights != null) {
+                                weights = Arrays.copyOf(weights, count * 2);
+                            }
+                        }
+                        if ((weight != 0) && (weights == null)) {
+                            weights = new int[words.length];
                         }
-                    } while (theWord != null);
-                } catch (final IOException ioe) {
-                    System.err.println("Extension Stop word Dictionary loading exception.");
-                    ioe.printStackTrace();
-                } finally {
-                    try {
-                        if (is != null) {
-                            is.close();
-                            is = null;
+                        if (weights != null) {
+                            weights[count] = weight;
                         }
-                    } catch (final IOException e) {
-                        e.printStackTrace();
+                        words[count++] = word;
                     }
+                } while (theWord != null);
+            } catch (final IOException ioe) {
+                System.err.println(this.label + " loading exception.");
+                ioe.printStackTrace();
+            } finally {
+                try {
+                    if (is != null) {
+                        is.close();
+                        is = null;
+                    }
+                } catch (final IOException e) {
+                    e.printStackTrace();
                 }
             }
+            return WordList.sort(words, weights, count);
+        }
+
+        /**
+         * 解析词频，格式错误或为负数时忽略
+         */
+        private int parseWeight(final String text, final String line) {
+            try {
+                return Math.max(0, Integer.parseInt(text));
+            } catch (final NumberFormatException e) {
+                System.err.println(this.label + " invalid word frequency: " + line);
+                return 0;
+            }
         }
     }
 
     /**
-     * 加载量词词典
+     * 词典编译任务
+     * 将若干词典文件排序后的词条归并去重，批量构造词典树，再编译为双数组Trie
      */
-    private void loadQuantifierDict() {
-        // 建立一个量词典实例
-        this._QuantifierDict = new DictSegment((char) 0);
-        // 读取量词词典文件
-        InputStream is = this.getClass().getClassLoader().getResourceAsStream(this.cfg.getQuantifierDicionary());
-        if (is == null) {
-            throw new RuntimeException("Quantifier Dictionary not found!!!");
+    private static final class TrieCompiler implements Callable<DoubleArrayTrie> {
+        // 各词典文件的解析任务
+        private final List<Future<WordList>> sources;
+        // 是否压缩为最小化的无环自动机
+        private final boolean                compact;
+
+        TrieCompiler(final List<Future<WordList>> sources, final boolean compact) {
+            this.sources = sources;
+            this.compact = compact;
         }
-        try {
-            final BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-            String theWord = null;
-            do {
-                theWord = br.readLine();
-                if ((theWord != null) && !"".equals(theWord.trim())) {
-                    this._QuantifierDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-                }
-            } while (theWord != null);
-        } catch (final IOException ioe) {
-            System.err.println("Quantifier Dictionary loading exception.");
-            ioe.printStackTrace();
-        } finally {
-            try {
-                if (is != null) {
-                    is.close();
-                    is = null;
-                }
-            } catch (final IOException e) {
-                e.printStackTrace();
-            }
+
+        @Override
+        public DoubleArrayTrie call() {
+            return DoubleArrayTrie.build(DictSegment.build(Dictionary.mergeSources(this.sources)), this.compact);
+        }
+    }
+
+    /**
+     * 停止词词典编译任务
+     * 将停止词文件排序后的词条归并去重，构造停止词散列集合
+     */
+    private static final class StopWordCompiler implements Callable<StopWordSet> {
+        // 各词典文件的解析任务
+        private final List<Future<WordList>> sources;
+
+        StopWordCompiler(final List<Future<WordList>> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public StopWordSet call() {
+            return new StopWordSet(Dictionary.mergeSources(this.sources).words);
+        }
+    }
+
+    /**
+     * 一次词条更新请求
+     */
+    private static final class WordUpdate {
+        // 词条列表
+        private final Collection<String> words;
+        // 与words一一对应的词频，没有词频时为null
+        private final int[]              weights;
+        // true 加载词条，false 屏蔽词条
+        private final boolean            enabled;
+        // 来自增量日志时为最后一条操作的版本号，否则为0
+        private final long               version;
+        // 是否已处理（编译进主词典或失败）
+        // 只在更新锁内读写，由锁保证可见性，不需要volatile
+        private boolean                  completed;
+        // 编译失败的原因，成功时为null，读写方式与completed相同
+        private Throwable                failure;
+
+        WordUpdate(final Collection<String> words, final boolean enabled) {
+            // 保存副本，重新加载词典时重放，不受调用者之后修改的影响
+            this(new ArrayList<String>(words), null, enabled, 0);
+        }
+
+        WordUpdate(final Collection<String> words, final int[] weights, final boolean enabled, final long version) {
+            this.words = words;
+            this.weights = weights;
+            this.enabled = enabled;
+            this.version = version;
+        }
+
+        int weight(final int i) {
+            return this.weights == null ? 0 : this.weights[i];
         }
     }
 }
@@ -0,0 +1,224 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 词典增量日志
+ * 日志目录中的每个*.delta文件是一段只追加的日志，按文件名顺序读取
+ * 每行一条操作：“版本号\t+\t词条[\t词频]”加载词条，“版本号\t-\t词条”屏蔽词条，空行和#开头的行忽略
+ * 版本号必须单调递增，不大于已读取版本号的行被跳过，同一日志可以重复读取而不会重复应用
+ * 每个文件记录已读取的字节位置，每次只读取新追加的完整行，正在写入、没有换行符结尾的行留到下次读取
+ * 读取和提交分两步：poll只记录待提交的位置和版本号，调用者应用成功后commit；未提交时下次poll重新读取同样的操作
+ * 非线程安全，由调用者同步
+ */
+final class DictionaryDeltaLog {
+    // 日志文件扩展名
+    private static final String     SUFFIX  = ".delta";
+    // 日志目录
+    private final File              directory;
+    // 每个日志文件已应用的字节位置
+    private Map<String, Long>       offsets = new HashMap<String, Long>();
+    // 已应用的最大版本号
+    private long                    version;
+    // 最近一次poll读取到的字节位置，commit后成为已应用的位置
+    private Map<String, Long>       pendingOffsets;
+    // 最近一次poll读取到的最大版本号
+    private long                    pendingVersion;
+
+    /**
+     * @param directory
+     *            日志目录
+     */
+    DictionaryDeltaLog(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 读取上次提交之后追加的操作
+     * 读取位置和版本号在commit之前不改变
+     * 
+     * @param fromStart
+     *            为true时忽略已应用的位置和版本号，返回日志中的全部操作
+     * @return List<Entry> 按版本号递增排列的新操作，没有新操作时为空表
+     */
+    List<Entry> poll(final boolean fromStart) {
+        if (fromStart) {
+            this.pendingOffsets = new HashMap<String, Long>();
+            this.pendingVersion = 0;
+        } else {
+            this.pendingOffsets = new HashMap<String, Long>(this.offsets);
+            this.pendingVersion = this.version;
+        }
+        final List<Entry> entries = new ArrayList<Entry>();
+        final File[] files = this.directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(DictionaryDeltaLog.SUFFIX);
+            }
+        });
+        if (files == null) {
+            // 目录不存在或不可读
+            return entries;
+        }
+        Arrays.sort(files);
+        for (final File file : files) {
+            this.read(file, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * 提交最近一次poll的读取位置和版本号
+     * 在poll返回的操作成功应用之后调用
+     */
+    void commit() {
+        if (this.pendingOffsets != null) {
+            this.offsets = this.pendingOffsets;
+            this.version = this.pendingVersion;
+            this.pendingOffsets = null;
+        }
+    }
+
+    /**
+     * 读取一个日志文件新追加的完整行
+     */
+    private void read(final File file, final List<Entry> entries) {
+        final String name = file.getName();
+        final Long offset = this.pendingOffsets.get(name);
+        long position = offset == null ? 0 : offset.longValue();
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            final long length = raf.length();
+            if (length < position) {
+                // 文件被截断或替换，从头读取，已应用的行由版本号过滤
+                position = 0;
+            }
+            if (length == position) {
+                return;
+            }
+            final byte[] bytes = new byte[(int) (length - position)];
+            raf.seek(position);
+            raf.readFully(bytes);
+            // 只处理到最后一个换行符，UTF-8多字节字符中不会出现换行符的字节
+            int end = bytes.length;
+            while ((end > 0) && (bytes[end - 1] != '\n')) {
+                end--;
+            }
+            if (end == 0) {
+                return;
+            }
+            final String text = new String(bytes, 0, end, "UTF-8");
+            for (final String line : text.split("\n")) {
+                this.parse(line, file, entries);
+            }
+            this.pendingOffsets.put(name, Long.valueOf(position + end));
+        } catch (final IOException ioe) {
+            System.err.println("Dictionary delta log loading exception: " + file);
+            ioe.printStackTrace();
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                    raf = null;
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 解析一行操作，格式错误或版本号未递增的行被跳过
+     */
+    private void parse(final String line, final File file, final List<Entry> entries) {
+        final String trimmed = line.trim();
+        if ("".equals(trimmed) || trimmed.startsWith("#")) {
+            return;
+        }
+        final String[] fields = trimmed.split("\t");
+        if ((fields.length < 3) || (fields.length > 4)) {
+            System.err.println("Dictionary delta log invalid line in " + file + ": " + line);
+            return;
+        }
+        final long entryVersion;
+        int weight = 0;
+        try {
+            entryVersion = Long.parseLong(fields[0].trim());
+            if (fields.length == 4) {
+                weight = Math.max(0, Integer.parseInt(fields[3].trim()));
+            }
+        } catch (final NumberFormatException e) {
+            System.err.println("Dictionary delta log invalid line in " + file + ": " + line);
+            return;
+        }
+        final String op = fields[1].trim();
+        final boolean enabled;
+        if ("+".equals(op)) {
+            enabled = true;
+        } else if ("-".equals(op)) {
+            enabled = false;
+        } else {
+            System.err.println("Dictionary delta log invalid operation in " + file + ": " + line);
+            return;
+        }
+        final String word = fields[2].trim().toLowerCase();
+        if ("".equals(word)) {
+            return;
+        }
+        if (entryVersion <= this.pendingVersion) {
+            // 已应用过的操作
+            return;
+        }
+        this.pendingVersion = entryVersion;
+        entries.add(new Entry(entryVersion, enabled, word, weight));
+    }
+
+    /**
+     * 日志中的一条操作
+     */
+    static final class Entry {
+        // 版本号
+        final long    version;
+        // true 加载词条，false 屏蔽词条
+        final boolean enabled;
+        // 去除空白并转为小写的词条
+        final String  word;
+        // 词频，没有词频时为0
+        final int     weight;
+
+        Entry(final long version, final boolean enabled, final String word, final int weight) {
+            this.version = version;
+            this.enabled = enabled;
+            this.word = word;
+            this.weight = weight;
+        }
+    }
+}
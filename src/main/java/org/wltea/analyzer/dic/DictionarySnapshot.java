@@ -0,0 +1,209 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 词典二进制快照
+ * 将编译完成的词典双数组写入文件，下次启动时一次性读入或直接映射，跳过文本解析和编译
+ * 快照中记录词典源文件的签名，源文件变化后快照自动失效
+ * 所有数组按小端序存放并对齐到4字节边界，映射后可以直接按int读取
+ */
+final class DictionarySnapshot {
+    // 文件标识 "IKDT"
+    private static final int MAGIC   = 0x494B4454;
+    // 文件格式版本
+    private static final int VERSION = 5;
+
+    private DictionarySnapshot() {}
+
+    /**
+     * 读取快照
+     * 
+     * @param file
+     *            快照文件
+     * @param signature
+     *            当前词典源文件的签名
+     * @param count
+     *            快照中双数组的个数
+     * @param mapped
+     *            true 以只读方式映射文件，双数组直接引用映射区域；false 读入堆内
+     * @return DoubleArrayTrie[] 快照不存在、格式不符或已过期时返回null
+     */
+    static DoubleArrayTrie[] load(final File file, final String signature, final int count, final boolean mapped) {
+        if (!file.isFile()) {
+            return null;
+        }
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            final FileChannel channel = fis.getChannel();
+            final ByteBuffer buffer;
+            if (mapped) {
+                // 映射在通道关闭后仍然有效；快照被替换时，已映射的旧文件内容保持不变
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } else {
+                buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        return null;
+                    }
+                }
+                buffer.flip();
+            }
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if ((buffer.getInt() != DictionarySnapshot.MAGIC) || (buffer.getInt() != DictionarySnapshot.VERSION)) {
+                return null;
+            }
+            if (!signature.equals(DictionarySnapshot.readString(buffer))) {
+                // 词典源文件已变化
+                return null;
+            }
+            if (buffer.getInt() != count) {
+                return null;
+            }
+            final DoubleArrayTrie[] tries = new DoubleArrayTrie[count];
+            for (int i = 0; i < count; i++) {
+                tries[i] = DoubleArrayTrie.readFrom(buffer, mapped);
+            }
+            return tries;
+        } catch (final IOException ioe) {
+            System.err.println("Dictionary snapshot loading exception.");
+            ioe.printStackTrace();
+        } catch (final RuntimeException re) {
+            // 快照文件损坏
+            System.err.println("Dictionary snapshot is corrupted: " + file);
+        } finally {
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 写入快照
+     * 先写入临时文件再改名，避免其他进程读到不完整的快照
+     * 
+     * @param file
+     *            快照文件
+     * @param signature
+     *            词典源文件的签名
+     * @param tries
+     *            编译完成的词典
+     */
+    static void save(final File file, final String signature, final DoubleArrayTrie[] tries) {
+        final byte[] signatureBytes = DictionarySnapshot.toBytes(signature);
+        int size = 12 + DictionarySnapshot.stringSize(signatureBytes);
+        for (final DoubleArrayTrie trie : tries) {
+            size += trie.byteSize();
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(DictionarySnapshot.MAGIC);
+        buffer.putInt(DictionarySnapshot.VERSION);
+        DictionarySnapshot.writeString(buffer, signatureBytes);
+        buffer.putInt(tries.length);
+        for (final DoubleArrayTrie trie : tries) {
+            trie.writeTo(buffer);
+        }
+        buffer.flip();
+        final File parent = file.getAbsoluteFile().getParentFile();
+        FileOutputStream fos = null;
+        File tmpFile = null;
+        try {
+            if ((parent != null) && !parent.isDirectory()) {
+                parent.mkdirs();
+            }
+            tmpFile = File.createTempFile(file.getName(), ".tmp", parent);
+            fos = new FileOutputStream(tmpFile);
+            final FileChannel channel = fos.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            fos.close();
+            fos = null;
+            if (!tmpFile.renameTo(file)) {
+                // 部分平台不能覆盖已存在的文件
+                file.delete();
+                if (!tmpFile.renameTo(file)) {
+                    throw new IOException("Unable to rename " + tmpFile + " to " + file);
+                }
+            }
+            tmpFile = null;
+        } catch (final IOException ioe) {
+            System.err.println("Dictionary snapshot writing exception.");
+            ioe.printStackTrace();
+        } finally {
+            try {
+                if (fos != null) {
+                    fos.close();
+                }
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * 字符串按UTF-8编码
+     */
+    private static byte[] toBytes(final String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 字符串占用的字节数，补齐到4字节边界，保证后续的int数组对齐
+     */
+    private static int stringSize(final byte[] bytes) {
+        return 4 + ((bytes.length + 3) & ~3);
+    }
+
+    private static void writeString(final ByteBuffer buffer, final byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        buffer.position(buffer.position() + (DictionarySnapshot.stringSize(bytes) - 4 - bytes.length));
+    }
+
+    private static String readString(final ByteBuffer buffer) throws IOException {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        buffer.position(buffer.position() + (DictionarySnapshot.stringSize(bytes) - 4 - bytes.length));
+        return new String(bytes, "UTF-8");
+    }
+}
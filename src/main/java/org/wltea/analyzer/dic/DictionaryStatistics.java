@@ -0,0 +1,318 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 词典统计信息
+ * 节点、子节点数和深度按词典树（DictSegment）统计，与词典当前的存储方式无关，可以用来比较不同的存储方式
+ * 占用字节数是对词典当前存储结构的估算，按64位JVM、压缩指针计算，对象头12字节、数组头16字节、按8字节对齐
+ * 统计完成后只读
+ */
+public final class DictionaryStatistics {
+    // 子节点数直方图的桶数，最后一个桶统计子节点数不小于该值减1的节点
+    private static final int FAN_OUT_BUCKETS = 64;
+    // 词典名称
+    private final String     name;
+    // 词条数目
+    private int              wordCount;
+    // 节点数目，不含根节点
+    private int              nodeCount;
+    // 直接引用唯一子节点的节点数目
+    private int              singleNodeCount;
+    // 以有序数组存储子节点的节点数目
+    private int              arrayNodeCount;
+    // 以位图索引存储子节点的节点数目
+    private int              bitmapNodeCount;
+    // 以char为下标的数组存储子节点的节点数目
+    private int              directNodeCount;
+    // 以Map存储子节点的节点数目
+    private int              mapNodeCount;
+    // 最大子节点数
+    private int              maxFanOut;
+    // 子节点数直方图，下标为子节点数
+    private final int[]      fanOutHistogram = new int[DictionaryStatistics.FAN_OUT_BUCKETS];
+    // 深度直方图，下标为节点深度，即节点路径的字符数
+    private int[]            depthHistogram  = new int[16];
+    // 双数组的槽位数，不以双数组存储时为0
+    private final int        slotCount;
+    // 词典当前存储结构占用的字节数
+    private final long       retainedBytes;
+    // 以词典树存储时占用的字节数
+    private long             treeBytes;
+
+    private DictionaryStatistics(final String name, final int slotCount, final long retainedBytes) {
+        this.name = name;
+        this.slotCount = slotCount;
+        this.retainedBytes = retainedBytes;
+    }
+
+    /**
+     * 统计词典树
+     * 
+     * @param name
+     *            词典名称
+     * @param root
+     *            词典树的根节点
+     * @param slotCount
+     *            双数组的槽位数
+     * @param retainedBytes
+     *            词典当前存储结构占用的字节数
+     * @return DictionaryStatistics
+     */
+    static DictionaryStatistics of(final String name, final DictSegment root, final int slotCount, final long retainedBytes) {
+        final DictionaryStatistics statistics = new DictionaryStatistics(name, slotCount, retainedBytes);
+        statistics.visit(root, 0);
+        statistics.depthHistogram = Arrays.copyOf(statistics.depthHistogram, statistics.getMaxDepth() + 1);
+        return statistics;
+    }
+
+    /**
+     * 深度优先统计节点
+     */
+    private void visit(final DictSegment segment, final int depth) {
+        final DictSegment[] children = segment.getChildren();
+        if (depth > 0) {
+            this.nodeCount++;
+            if (segment.getNodeState() == 1) {
+                this.wordCount++;
+            }
+            if (depth == this.depthHistogram.length) {
+                this.depthHistogram = Arrays.copyOf(this.depthHistogram, depth * 2);
+            }
+            this.depthHistogram[depth]++;
+        }
+        this.treeBytes += segment.byteSize();
+        switch (segment.getChildrenType()) {
+            case DictSegment.SINGLE_CHILD:
+                this.singleNodeCount++;
+                break;
+            case DictSegment.ARRAY_CHILDREN:
+                this.arrayNodeCount++;
+                break;
+            case DictSegment.BITMAP_CHILDREN:
+                this.bitmapNodeCount++;
+                break;
+            case DictSegment.DIRECT_CHILDREN:
+                this.directNodeCount++;
+                break;
+            case DictSegment.MAP_CHILDREN:
+                this.mapNodeCount++;
+                break;
+            default:
+                break;
+        }
+        this.maxFanOut = Math.max(this.maxFanOut, children.length);
+        this.fanOutHistogram[Math.min(children.length, DictionaryStatistics.FAN_OUT_BUCKETS - 1)]++;
+        for (final DictSegment child : children) {
+            this.visit(child, depth + 1);
+        }
+    }
+
+    /**
+     * 估算对象占用的字节数
+     * 
+     * @param fieldBytes
+     *            全部字段的字节数
+     * @return long
+     */
+    static long objectBytes(final int fieldBytes) {
+        return DictionaryStatistics.align(12 + fieldBytes);
+    }
+
+    /**
+     * 估算数组占用的字节数
+     * 
+     * @param length
+     *            数组长度
+     * @param elementBytes
+     *            每个元素的字节数，引用为4
+     * @return long
+     */
+    static long arrayBytes(final int length, final int elementBytes) {
+        return DictionaryStatistics.align(16 + ((long) length * elementBytes));
+    }
+
+    private static long align(final long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * 词典名称
+     * 
+     * @return String
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 词条数目
+     * 
+     * @return int
+     */
+    public int getWordCount() {
+        return this.wordCount;
+    }
+
+    /**
+     * 节点数目，不含根节点
+     * 
+     * @return int
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * 直接引用唯一子节点的节点数目，含根节点
+     * 
+     * @return int
+     */
+    public int getSingleNodeCount() {
+        return this.singleNodeCount;
+    }
+
+    /**
+     * 以有序数组存储子节点的节点数目，含根节点
+     * 
+     * @return int
+     */
+    public int getArrayNodeCount() {
+        return this.arrayNodeCount;
+    }
+
+    /**
+     * 以位图索引存储子节点的节点数目，含根节点
+     * 
+     * @return int
+     */
+    public int getBitmapNodeCount() {
+        return this.bitmapNodeCount;
+    }
+
+    /**
+     * 以char为下标的数组存储子节点的节点数目，含根节点
+     * 
+     * @return int
+     */
+    public int getDirectNodeCount() {
+        return this.directNodeCount;
+    }
+
+    /**
+     * 以Map存储子节点的节点数目，含根节点
+     * 词典树批量构造时不使用Map，只有构造后追加词条的节点才会改为Map存储
+     * 
+     * @return int
+     */
+    public int getMapNodeCount() {
+        return this.mapNodeCount;
+    }
+
+    /**
+     * 最大子节点数
+     * 
+     * @return int
+     */
+    public int getMaxFanOut() {
+        return this.maxFanOut;
+    }
+
+    /**
+     * 子节点数直方图，含根节点
+     * 下标为子节点数，值为节点数目；最后一个元素统计子节点数不小于其下标的节点
+     * 
+     * @return int[] 副本
+     */
+    public int[] getFanOutHistogram() {
+        return this.fanOutHistogram.clone();
+    }
+
+    /**
+     * 最大深度，即最长词条的字符数
+     * 
+     * @return int
+     */
+    public int getMaxDepth() {
+        int depth = this.depthHistogram.length - 1;
+        while ((depth > 0) && (this.depthHistogram[depth] == 0)) {
+            depth--;
+        }
+        return depth;
+    }
+
+    /**
+     * 深度直方图
+     * 下标为节点深度，值为节点数目；根节点深度为0，不计入
+     * 
+     * @return int[] 副本
+     */
+    public int[] getDepthHistogram() {
+        return this.depthHistogram.clone();
+    }
+
+    /**
+     * 双数组的槽位数，含空闲槽位
+     * 
+     * @return int 不以双数组存储时为0
+     */
+    public int getSlotCount() {
+        return this.slotCount;
+    }
+
+    /**
+     * 词典当前存储结构占用的字节数（估算）
+     * 内存映射的快照计入映射区域的大小
+     * 
+     * @return long
+     */
+    public long getRetainedBytes() {
+        return this.retainedBytes;
+    }
+
+    /**
+     * 同样的词条以词典树存储时占用的字节数（估算）
+     * 
+     * @return long
+     */
+    public long getTreeBytes() {
+        return this.treeBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(this.name).append(" : words=").append(this.wordCount);
+        sb.append(", nodes=").append(this.nodeCount);
+        sb.append(", singleNodes=").append(this.singleNodeCount);
+        sb.append(", arrayNodes=").append(this.arrayNodeCount);
+        sb.append(", bitmapNodes=").append(this.bitmapNodeCount);
+        sb.append(", directNodes=").append(this.directNodeCount);
+        sb.append(", mapNodes=").append(this.mapNodeCount);
+        sb.append(", maxFanOut=").append(this.maxFanOut);
+        sb.append(", maxDepth=").append(this.getMaxDepth());
+        sb.append(", slots=").append(this.slotCount);
+        sb.append(", retainedBytes=").append(this.retainedBytes);
+        sb.append(", treeBytes=").append(this.treeBytes);
+        return sb.toString();
+    }
+}
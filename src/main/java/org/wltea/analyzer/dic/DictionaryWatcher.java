@@ -0,0 +1,175 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扩展词典文件监视线程
+ * 监视扩展词典和扩展停止词典所在的目录，文件变化后等待一段静默时间，合并连续的多次修改，再由词典在本线程中重新加载
+ * 重新加载期间分词线程继续使用旧的词典，加载完成后整体替换
+ * 只能监视位于文件系统目录中的词典文件，打包在jar中的词典文件被忽略
+ * 使用java.nio.file.WatchService，需要Java 7及以上版本，只在配置dict_watch时加载
+ */
+final class DictionaryWatcher implements Runnable {
+    // 最后一次文件变化后等待的毫秒数
+    private static final long  DEBOUNCE_MILLIS  = 1000;
+    // 文件变化后需要重新加载的词典
+    private final Dictionary   dictionary;
+    // 文件系统监视服务
+    private final WatchService watchService;
+    // 被监视的扩展词典文件
+    private final Set<Path>    extDictFiles     = new HashSet<Path>();
+    // 被监视的扩展停止词典文件
+    private final Set<Path>    extStopWordFiles = new HashSet<Path>();
+
+    private DictionaryWatcher(final Dictionary dictionary, final WatchService watchService) {
+        this.dictionary = dictionary;
+        this.watchService = watchService;
+    }
+
+    /**
+     * 启动监视线程
+     * 
+     * @param dictionary
+     * @param extDictFiles
+     *            相对类加载器的扩展词典路径
+     * @param extStopWordFiles
+     *            相对类加载器的扩展停止词典路径
+     */
+    static void start(final Dictionary dictionary, final List<String> extDictFiles, final List<String> extStopWordFiles) {
+        final DictionaryWatcher watcher;
+        try {
+            watcher = new DictionaryWatcher(dictionary, FileSystems.getDefault().newWatchService());
+            final Set<Path> directories = new HashSet<Path>();
+            watcher.register(extDictFiles, watcher.extDictFiles, directories);
+            watcher.register(extStopWordFiles, watcher.extStopWordFiles, directories);
+            if (directories.isEmpty()) {
+                watcher.watchService.close();
+                return;
+            }
+        } catch (final IOException ioe) {
+            System.err.println("Dictionary watcher starting exception.");
+            ioe.printStackTrace();
+            return;
+        }
+        final Thread thread = new Thread(watcher, "IK Dictionary Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 解析词典文件的位置，并监视其所在目录
+     */
+    private void register(final List<String> dictNames, final Set<Path> files, final Set<Path> directories) throws IOException {
+        if (dictNames == null) {
+            return;
+        }
+        for (final String dictName : dictNames) {
+            final URL url = Dictionary.class.getClassLoader().getResource(dictName);
+            if ((url == null) || !"file".equals(url.getProtocol())) {
+                System.err.println("Dictionary watcher cannot watch " + dictName + ", it is not a file on disk.");
+                continue;
+            }
+            final Path file;
+            try {
+                file = Paths.get(url.toURI()).toAbsolutePath();
+            } catch (final URISyntaxException e) {
+                System.err.println("Dictionary watcher cannot watch " + dictName + ": " + url);
+                continue;
+            }
+            files.add(file);
+            final Path directory = file.getParent();
+            if (directories.add(directory)) {
+                directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        boolean extDictChanged = false;
+        boolean extStopWordChanged = false;
+        try {
+            while (true) {
+                final WatchKey key;
+                if (extDictChanged || extStopWordChanged) {
+                    key = this.watchService.poll(DictionaryWatcher.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } else {
+                    key = this.watchService.take();
+                }
+                if (key == null) {
+                    // 静默时间内没有新的变化，重新加载
+                    this.reload(extDictChanged, extStopWordChanged);
+                    extDictChanged = false;
+                    extStopWordChanged = false;
+                    continue;
+                }
+                final Path directory = (Path) key.watchable();
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // 丢失了部分事件，无法判断哪些文件变化
+                        extDictChanged |= !this.extDictFiles.isEmpty();
+                        extStopWordChanged |= !this.extStopWordFiles.isEmpty();
+                        continue;
+                    }
+                    final Path file = directory.resolve((Path) event.context());
+                    extDictChanged |= this.extDictFiles.contains(file);
+                    extStopWordChanged |= this.extStopWordFiles.contains(file);
+                }
+                key.reset();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 重新加载变化的词典，出错时保留原有的词典，继续监视
+     */
+    private void reload(final boolean extDictChanged, final boolean extStopWordChanged) {
+        try {
+            if (extDictChanged) {
+                System.out.println("重新加载扩展词典");
+                this.dictionary.reloadMainDict();
+            }
+            if (extStopWordChanged) {
+                System.out.println("重新加载扩展停止词典");
+                this.dictionary.reloadStopWordDict();
+            }
+        } catch (final RuntimeException e) {
+            System.err.println("Dictionary reloading exception.");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,797 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 双数组Trie（Double-Array Trie）
+ * 由加载完成的DictSegment词典树编译而成，编译后只读
+ * 字符先按词频映射为紧凑的字符码，状态s经字符码code转移到 t = base[s] + code，当且仅当 check[t] == code 时转移有效
+ * 每个槽位表示一条边，check记录边上的字符码，base指向目标节点的子节点区块；不同节点的区块base值互不相同
+ * 因此多条边可以指向同一个子节点区块，词典可以压缩为最小化的无环自动机（DAWG），共享相同的后缀
+ * 词典提供词频时，另有一个与槽位对应的词频数组
+ * 数组可以存放在堆内（HeapDoubleArrayTrie），也可以直接读取内存映射的快照文件（MappedDoubleArrayTrie）
+ */
+abstract class DoubleArrayTrie {
+    // 根状态
+    static final int         ROOT_STATE    = 0;
+    // 空闲槽位标记
+    static final int         FREE          = -1;
+    // 字符表大小
+    static final int         ALPHABET_SIZE = 65536;
+    // 编译时数组的初始容量
+    private static final int INIT_SIZE     = 65536;
+    // 根状态直接查找表覆盖的第一个字符，CJK统一汉字
+    static final char        ROOT_BEGIN    = '\u4e00';
+    // 根状态直接查找表覆盖的字符数目，至U+9FFF
+    static final int         ROOT_LENGTH   = 0xa000 - 0x4e00;
+    // 根状态直接查找表，下标为字符减去ROOT_BEGIN，值为根状态经该字符转移到的状态，没有转移时为ROOT_STATE
+    // 只为主词典建立，其他词典为null
+    private int[]            rootTable;
+
+    /**
+     * 字符对应的字符码，0表示词典中没有该字符
+     */
+    abstract int charCode(char c);
+
+    /**
+     * 状态的base值，即子节点区块的起点，0表示状态没有后续节点
+     */
+    abstract int base(int state);
+
+    /**
+     * 槽位上的字符码，FREE表示空闲槽位
+     */
+    abstract int check(int index);
+
+    /**
+     * 状态标记，1表示从根状态到当前状态的路径是一个词
+     */
+    abstract int nodeState(int state);
+
+    /**
+     * 状态对应词条的词频，0表示没有词频
+     */
+    abstract int weight(int state);
+
+    /**
+     * 是否保存了词频，词典中没有任何词频时不分配词频数组
+     */
+    abstract boolean hasWeights();
+
+    /**
+     * 全部词条的词频之和
+     */
+    abstract long totalWeight();
+
+    /**
+     * 数组长度
+     */
+    abstract int size();
+
+    /**
+     * 建立根状态直接查找表
+     * 每次匹配都从根状态开始，汉字的第一次转移只需读取一次数组
+     * 查找表占用约80KB，只为分词时频繁匹配的主词典建立；已有查找表时不重复建立
+     */
+    final void buildRootTable() {
+        if (this.hasRootTable()) {
+            return;
+        }
+        final int[] table = new int[DoubleArrayTrie.ROOT_LENGTH];
+        for (int i = 0; i < DoubleArrayTrie.ROOT_LENGTH; i++) {
+            table[i] = this.transition(DoubleArrayTrie.ROOT_STATE, (char) (DoubleArrayTrie.ROOT_BEGIN + i));
+        }
+        this.rootTable = table;
+    }
+
+    /**
+     * 根状态经一个字符转移到的状态
+     * 
+     * @param c
+     * @return int 没有转移时返回ROOT_STATE
+     */
+    int rootChild(final char c) {
+        final int[] table = this.rootTable;
+        if (table != null) {
+            final int i = c - DoubleArrayTrie.ROOT_BEGIN;
+            if ((i >= 0) && (i < DoubleArrayTrie.ROOT_LENGTH)) {
+                return table[i];
+            }
+        }
+        return this.transition(DoubleArrayTrie.ROOT_STATE, c);
+    }
+
+    /**
+     * 是否有根状态直接查找表
+     * 
+     * @return boolean
+     */
+    boolean hasRootTable() {
+        return this.rootTable != null;
+    }
+
+    /**
+     * 按双数组转移
+     * 
+     * @return int 没有转移时返回ROOT_STATE，根状态不是任何状态的子状态
+     */
+    private int transition(final int state, final char c) {
+        final int code = this.charCode(c);
+        final int b = this.base(state);
+        if ((code == 0) || (b == 0) || ((b + code) >= this.size()) || (this.check(b + code) != code)) {
+            return DoubleArrayTrie.ROOT_STATE;
+        }
+        return b + code;
+    }
+
+    /**
+     * 占用的内存字节数，含根状态直接查找表；内存映射时数组和查找表都在堆外
+     * 
+     * @return long
+     */
+    long retainedBytes() {
+        return this.byteSize();
+    }
+
+    /**
+     * 将词典树编译为双数组Trie
+     * 
+     * @param root
+     *            词典树的根节点
+     * @return DoubleArrayTrie
+     */
+    static DoubleArrayTrie build(final DictSegment root) {
+        return DoubleArrayTrie.build(root, false);
+    }
+
+    /**
+     * 将词典树编译为双数组Trie
+     * 
+     * @param root
+     *            词典树的根节点
+     * @param compact
+     *            true 先合并等价的子树，编译为最小化的无环自动机
+     * @return DoubleArrayTrie
+     */
+    static DoubleArrayTrie build(final DictSegment root, final boolean compact) {
+        final Builder builder = new Builder(root, compact);
+        builder.insertRoot(root);
+        return builder.toTrie();
+    }
+
+    /**
+     * 匹配词段
+     * 
+     * @param charArray
+     * @param begin
+     * @param length
+     * @param searchHit
+     * @return Hit
+     */
+    Hit match(final char[] charArray, final int begin, final int length, Hit searchHit) {
+        if (searchHit == null) {
+            // 如果hit为空，新建
+            searchHit = new Hit();
+            // 设置hit的其实文本位置
+            searchHit.setBegin(begin);
+        }
+        return this.match(DoubleArrayTrie.ROOT_STATE, charArray, begin, length, searchHit);
+    }
+
+    /**
+     * 从已匹配的Hit记录的状态继续向下匹配一个字符
+     * 
+     * @param charArray
+     * @param currentIndex
+     * @param matchedHit
+     * @return Hit
+     */
+    Hit matchWithHit(final char[] charArray, final int currentIndex, final Hit matchedHit) {
+        return this.match(matchedHit.getMatchedState(), charArray, currentIndex, 1, matchedHit);
+    }
+
+    /**
+     * 从指定状态开始匹配词段
+     */
+    private Hit match(final int state, final char[] charArray, final int begin, final int length, final Hit searchHit) {
+        // 将HIT状态重置
+        searchHit.setUnmatch();
+        searchHit.setEnd(begin);
+        if (length <= 0) {
+            return searchHit;
+        }
+        int s = state;
+        int i = begin;
+        if (s == DoubleArrayTrie.ROOT_STATE) {
+            // 第一个字符从根状态转移，查表
+            s = this.rootChild(charArray[i++]);
+            if (s == DoubleArrayTrie.ROOT_STATE) {
+                return searchHit;
+            }
+        }
+        final int size = this.size();
+        final int end = begin + length;
+        for (; i < end; i++) {
+            // 设置hit的当前处理位置
+            searchHit.setEnd(i);
+            final int code = this.charCode(charArray[i]);
+            final int b = this.base(s);
+            if ((code == 0) || (b == 0) || ((b + code) >= size) || (this.check(b + code) != code)) {
+                // 没有找到对应的转移，HIT为不匹配
+                return searchHit;
+            }
+            s = b + code;
+        }
+        if (this.nodeState(s) == 1) {
+            // 添加HIT状态为完全匹配
+            searchHit.setMatch();
+            searchHit.setWeight(this.weight(s));
+        }
+        if (this.base(s) != 0) {
+            // 添加HIT状态为前缀匹配，并记录当前状态
+            searchHit.setPrefix();
+            searchHit.setMatchedTrie(this);
+            searchHit.setMatchedState(s);
+        }
+        return searchHit;
+    }
+
+    /**
+     * 序列化后占用的字节数，补齐到4字节边界
+     * 
+     * @return int
+     */
+    int byteSize() {
+        return 4 + (DoubleArrayTrie.ALPHABET_SIZE * 2) + 4 + (this.size() * 8) + ((this.size() + 3) & ~3) + 4 + (this.hasWeights() ? 8 + (this.size() * 4) : 0) + 4 + (this.hasRootTable() ? DoubleArrayTrie.ROOT_LENGTH * 4 : 0);
+    }
+
+    /**
+     * 将双数组写入缓冲区
+     * 
+     * @param buffer
+     */
+    void writeTo(final ByteBuffer buffer) {
+        final int size = this.size();
+        buffer.putInt(DoubleArrayTrie.ALPHABET_SIZE);
+        for (int c = 0; c < DoubleArrayTrie.ALPHABET_SIZE; c++) {
+            buffer.putChar((char) this.charCode((char) c));
+        }
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(this.base(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(this.check(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) this.nodeState(i));
+        }
+        buffer.position(buffer.position() + (((size + 3) & ~3) - size));
+        buffer.putInt(this.hasWeights() ? 1 : 0);
+        if (this.hasWeights()) {
+            buffer.putLong(this.totalWeight());
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(this.weight(i));
+            }
+        }
+        buffer.putInt(this.hasRootTable() ? 1 : 0);
+        if (this.hasRootTable()) {
+            for (int i = 0; i < DoubleArrayTrie.ROOT_LENGTH; i++) {
+                buffer.putInt(this.rootChild((char) (DoubleArrayTrie.ROOT_BEGIN + i)));
+            }
+        }
+    }
+
+    /**
+     * 从缓冲区读取双数组
+     * 
+     * @param buffer
+     * @param mapped
+     *            true 直接引用缓冲区中的数据，false 复制到堆内数组
+     * @return DoubleArrayTrie
+     */
+    static DoubleArrayTrie readFrom(final ByteBuffer buffer, final boolean mapped) {
+        final int alphabetSize = buffer.getInt();
+        if (alphabetSize != DoubleArrayTrie.ALPHABET_SIZE) {
+            throw new IllegalStateException("字符表大小不符：" + alphabetSize);
+        }
+        final ByteBuffer charCode = DoubleArrayTrie.slice(buffer, alphabetSize * 2);
+        final int size = buffer.getInt();
+        final ByteBuffer base = DoubleArrayTrie.slice(buffer, size * 4);
+        final ByteBuffer check = DoubleArrayTrie.slice(buffer, size * 4);
+        final ByteBuffer nodeState = DoubleArrayTrie.slice(buffer, (size + 3) & ~3);
+        final boolean weighted = buffer.getInt() != 0;
+        final long totalWeight = weighted ? buffer.getLong() : 0;
+        final ByteBuffer weight = weighted ? DoubleArrayTrie.slice(buffer, size * 4) : null;
+        final boolean rooted = buffer.getInt() != 0;
+        final ByteBuffer rootTable = rooted ? DoubleArrayTrie.slice(buffer, DoubleArrayTrie.ROOT_LENGTH * 4) : null;
+        if (mapped) {
+            return new MappedDoubleArrayTrie(charCode.asCharBuffer(), base.asIntBuffer(), check.asIntBuffer(), nodeState, weight == null ? null : weight.asIntBuffer(), totalWeight, size, rootTable == null ? null : rootTable.asIntBuffer());
+        }
+        final char[] charCodeArray = new char[alphabetSize];
+        charCode.asCharBuffer().get(charCodeArray);
+        final int[] baseArray = new int[size];
+        base.asIntBuffer().get(baseArray);
+        final int[] checkArray = new int[size];
+        check.asIntBuffer().get(checkArray);
+        final byte[] nodeStateArray = new byte[size];
+        nodeState.get(nodeStateArray);
+        int[] weightArray = null;
+        if (weight != null) {
+            weightArray = new int[size];
+            weight.asIntBuffer().get(weightArray);
+        }
+        final DoubleArrayTrie trie = new HeapDoubleArrayTrie(charCodeArray, baseArray, checkArray, nodeStateArray, weightArray, totalWeight);
+        if (rootTable != null) {
+            trie.rootTable = new int[DoubleArrayTrie.ROOT_LENGTH];
+            rootTable.asIntBuffer().get(trie.rootTable);
+        }
+        return trie;
+    }
+
+    /**
+     * 从缓冲区当前位置截取指定长度，并将位置后移
+     */
+    private static ByteBuffer slice(final ByteBuffer buffer, final int length) {
+        final ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        slice.order(buffer.order());
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    /**
+     * 将双数组还原为可修改的词典树
+     * 用于在词条更新后重新编译
+     * 
+     * @return DictSegment
+     */
+    DictSegment toDictSegment() {
+        return DictSegment.build(this.toWordList());
+    }
+
+    /**
+     * 按字符顺序返回全部词条
+     * 
+     * @return String[]
+     */
+    String[] words() {
+        return this.toWordList().words;
+    }
+
+    /**
+     * 按字符顺序返回全部词条及其词频
+     * 
+     * @return WordList
+     */
+    WordList toWordList() {
+        // 字符码到字符的反向映射
+        final char[] codeChar = new char[DoubleArrayTrie.ALPHABET_SIZE + 1];
+        for (int c = 0; c < DoubleArrayTrie.ALPHABET_SIZE; c++) {
+            codeChar[this.charCode((char) c)] = (char) c;
+        }
+        final int size = this.size();
+        // 建立每个区块的槽位链表，槽位t所在区块的起点为 t - check[t]
+        final int[] firstChild = new int[size];
+        final int[] nextSibling = new int[size];
+        Arrays.fill(firstChild, DoubleArrayTrie.FREE);
+        for (int t = size - 1; t > DoubleArrayTrie.ROOT_STATE; t--) {
+            final int code = this.check(t);
+            if (code != DoubleArrayTrie.FREE) {
+                nextSibling[t] = firstChild[t - code];
+                firstChild[t - code] = t;
+            }
+        }
+        final WordCollector collector = new WordCollector(this.hasWeights());
+        this.collect(collector, DoubleArrayTrie.ROOT_STATE, codeChar, new char[16], 0, firstChild, nextSibling);
+        return collector.toWordList();
+    }
+
+    /**
+     * 深度优先遍历状态，收集词条
+     * 子节点按字符排序后再遍历，词条按字符顺序产生
+     */
+    private void collect(final WordCollector collector, final int state, final char[] codeChar, char[] word, final int depth, final int[] firstChild, final int[] nextSibling) {
+        if (this.base(state) == 0) {
+            return;
+        }
+        int count = 0;
+        for (int t = firstChild[this.base(state)]; t != DoubleArrayTrie.FREE; t = nextSibling[t]) {
+            count++;
+        }
+        // 高位为字符，低位为槽位
+        final long[] children = new long[count];
+        count = 0;
+        for (int t = firstChild[this.base(state)]; t != DoubleArrayTrie.FREE; t = nextSibling[t]) {
+            children[count++] = ((long) codeChar[this.check(t)] << 32) | t;
+        }
+        Arrays.sort(children);
+        if (depth == word.length) {
+            word = Arrays.copyOf(word, depth * 2);
+        }
+        for (final long child : children) {
+            final int t = (int) child;
+            word[depth] = (char) (child >>> 32);
+            if (this.nodeState(t) == 1) {
+                collector.add(new String(word, 0, depth + 1), this.weight(t));
+            }
+            this.collect(collector, t, codeChar, word, depth + 1, firstChild, nextSibling);
+        }
+    }
+
+    /**
+     * 遍历时收集词条及其词频
+     */
+    private static final class WordCollector {
+        private String[] words   = new String[1024];
+        // 没有词频时为null
+        private int[]    weights;
+        private int      count;
+
+        WordCollector(final boolean weighted) {
+            this.weights = weighted ? new int[this.words.length] : null;
+        }
+
+        void add(final String word, final int weight) {
+            if (this.count == this.words.length) {
+                this.words = Arrays.copyOf(this.words, this.count * 2);
+                if (this.weights != null) {
+                    this.weights = Arrays.copyOf(this.weights, this.count * 2);
+                }
+            }
+            if (this.weights != null) {
+                this.weights[this.count] = weight;
+            }
+            this.words[this.count++] = word;
+        }
+
+        WordList toWordList() {
+            return new WordList(Arrays.copyOf(this.words, this.count), this.weights == null ? null : Arrays.copyOf(this.weights, this.count));
+        }
+    }
+
+    /**
+     * 双数组编译器
+     */
+    private static class Builder {
+        // 按子节点数目分组记录分配位置的组数
+        private static final int                          WIDTH_GROUPS  = 64;
+        // 子节点数目不少于该值的区块从上一次同组分配的位置开始查找
+        private static final int                          WIDE_BLOCK    = 4;
+        private final char[]                              charCode      = new char[DoubleArrayTrie.ALPHABET_SIZE];
+        private int[]                                     base          = new int[DoubleArrayTrie.INIT_SIZE];
+        private int[]                                     check         = new int[DoubleArrayTrie.INIT_SIZE];
+        private byte[]                                    nodeState     = new byte[DoubleArrayTrie.INIT_SIZE];
+        private int[]                                     weight        = new int[DoubleArrayTrie.INIT_SIZE];
+        // 是否有词条提供了词频
+        private boolean                                   weighted;
+        // 全部词条的词频之和
+        private long                                      totalWeight;
+        // 已被区块占用的base值，保证不同区块的base互不相同
+        private boolean[]                                 usedBase      = new boolean[DoubleArrayTrie.INIT_SIZE];
+        // 空闲槽位双向链表，查找区块位置时只访问空闲槽位
+        private int[]                                     nextFree      = new int[DoubleArrayTrie.INIT_SIZE];
+        private int[]                                     prevFree      = new int[DoubleArrayTrie.INIT_SIZE];
+        // 第一个和最后一个空闲槽位
+        private int                                       firstFree;
+        private int                                       lastFree;
+        // 按子节点数目记录上一次分配的位置，宽的区块不必反复扫描已经填满的区域
+        private final int[]                               widthCheckPos = new int[Builder.WIDTH_GROUPS];
+        // 已使用的最大槽位
+        private int                                       maxIndex;
+        // 压缩时每个节点对应的等价节点，不压缩时为null
+        private IdentityHashMap<DictSegment, DictSegment> canonical;
+
+        Builder(final DictSegment root, final boolean compact) {
+            Arrays.fill(this.check, DoubleArrayTrie.FREE);
+            this.check[DoubleArrayTrie.ROOT_STATE] = DoubleArrayTrie.ROOT_STATE;
+            this.firstFree = DoubleArrayTrie.ROOT_STATE + 1;
+            this.lastFree = DoubleArrayTrie.ROOT_STATE;
+            this.linkFree(DoubleArrayTrie.ROOT_STATE + 1, DoubleArrayTrie.INIT_SIZE);
+            // 统计字符在词典树中出现的次数，出现越多的字符分配越小的字符码
+            final int[] counts = new int[DoubleArrayTrie.ALPHABET_SIZE];
+            this.count(root, counts);
+            final Integer[] chars = new Integer[DoubleArrayTrie.ALPHABET_SIZE];
+            for (int c = 0; c < chars.length; c++) {
+                chars[c] = c;
+            }
+            Arrays.sort(chars, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer c1, final Integer c2) {
+                    return counts[c2] - counts[c1];
+                }
+            });
+            for (int i = 0; (i < chars.length) && (counts[chars[i]] > 0); i++) {
+                this.charCode[chars[i]] = (char) (i + 1);
+            }
+            if (compact) {
+                this.canonical = new IdentityHashMap<DictSegment, DictSegment>();
+                this.minimize(root, new HashMap<NodeKey, DictSegment>(), new IdentityHashMap<DictSegment, Integer>());
+            }
+        }
+
+        /**
+         * 统计字符出现次数，同时累计词频
+         */
+        private void count(final DictSegment segment, final int[] counts) {
+            for (final DictSegment child : segment.getChildren()) {
+                counts[child.getNodeChar()]++;
+                if (child.getNodeState() == 1) {
+                    this.totalWeight += child.getWeight();
+                }
+                this.count(child, counts);
+            }
+        }
+
+        /**
+         * 自底向上合并等价节点
+         * 状态和词频相同、子节点字符及其等价节点都相同的两个节点等价，可以共享同一个子节点区块
+         * 
+         * @return DictSegment 与segment等价的代表节点
+         */
+        private DictSegment minimize(final DictSegment segment, final Map<NodeKey, DictSegment> registry, final IdentityHashMap<DictSegment, Integer> ids) {
+            final DictSegment[] children = segment.getChildren();
+            final int[] key = new int[2 + (children.length * 2)];
+            key[0] = segment.getNodeState();
+            key[1] = segment.getNodeState() == 1 ? segment.getWeight() : 0;
+            for (int i = 0; i < children.length; i++) {
+                key[2 + (i * 2)] = children[i].getNodeChar();
+                key[3 + (i * 2)] = ids.get(this.minimize(children[i], registry, ids));
+            }
+            final NodeKey nodeKey = new NodeKey(key);
+            DictSegment representative = registry.get(nodeKey);
+            if (representative == null) {
+                representative = segment;
+                registry.put(nodeKey, segment);
+                ids.put(segment, ids.size());
+            }
+            this.canonical.put(segment, representative);
+            return representative;
+        }
+
+        /**
+         * 为全部节点分配区块，槽位0表示指向根节点的边
+         * 先按子节点数目从多到少依次分配区块，宽的区块在数组还空旷时就近放置，窄的区块随后填充空隙
+         * 全部区块分配完成后，再为每条边填写目标节点区块的base值
+         */
+        void insertRoot(final DictSegment root) {
+            // 收集需要分配区块的节点及其子节点，压缩时等价节点只收集一次
+            final List<DictSegment[]> childLists = new ArrayList<DictSegment[]>();
+            final List<int[]> childIndexes = new ArrayList<int[]>();
+            final int rootIndex = this.collect(root, childLists, childIndexes, this.canonical == null ? null : new IdentityHashMap<DictSegment, Integer>());
+            final int count = childLists.size();
+            final long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = ((long) (Integer.MAX_VALUE - childLists.get(i).length) << 32) | i;
+            }
+            Arrays.sort(order);
+            final int[] blocks = new int[count];
+            for (final long o : order) {
+                blocks[(int) o] = this.place(childLists.get((int) o));
+            }
+            for (int i = 0; i < count; i++) {
+                final DictSegment[] children = childLists.get(i);
+                final int[] indexes = childIndexes.get(i);
+                for (int j = 0; j < children.length; j++) {
+                    this.base[blocks[i] + this.charCode[children[j].getNodeChar()]] = indexes[j] < 0 ? 0 : blocks[indexes[j]];
+                }
+            }
+            this.base[DoubleArrayTrie.ROOT_STATE] = rootIndex < 0 ? 0 : blocks[rootIndex];
+        }
+
+        /**
+         * 深度优先收集有子节点的代表节点
+         * 
+         * @param indexes
+         *            压缩时记录已收集的代表节点，不压缩时为null
+         * @return int 节点的序号，没有子节点时返回-1
+         */
+        private int collect(final DictSegment segment, final List<DictSegment[]> childLists, final List<int[]> childIndexes, final IdentityHashMap<DictSegment, Integer> indexes) {
+            final DictSegment node = this.canonical == null ? segment : this.canonical.get(segment);
+            if (indexes != null) {
+                final Integer index = indexes.get(node);
+                if (index != null) {
+                    return index;
+                }
+            }
+            final DictSegment[] children = node.getChildren();
+            if (children.length == 0) {
+                return -1;
+            }
+            final int index = childLists.size();
+            childLists.add(children);
+            childIndexes.add(null);
+            if (indexes != null) {
+                indexes.put(node, index);
+            }
+            final int[] childIndex = new int[children.length];
+            for (int j = 0; j < children.length; j++) {
+                childIndex[j] = this.collect(children[j], childLists, childIndexes, indexes);
+            }
+            childIndexes.set(index, childIndex);
+            return index;
+        }
+
+        /**
+         * 为一组子节点分配区块
+         * 
+         * @return int 区块的base值
+         */
+        private int place(final DictSegment[] children) {
+            // 按字符码排序
+            final long[] codes = new long[children.length];
+            for (int i = 0; i < children.length; i++) {
+                codes[i] = ((long) this.charCode[children[i].getNodeChar()] << 32) | i;
+            }
+            Arrays.sort(codes);
+            final int b = this.findBase(codes);
+            this.usedBase[b] = true;
+            for (int i = 0; i < codes.length; i++) {
+                final int code = (int) (codes[i] >>> 32);
+                final int t = b + code;
+                this.check[t] = code;
+                this.unlinkFree(t);
+                final DictSegment child = children[(int) codes[i]];
+                this.nodeState[t] = (byte) child.getNodeState();
+                if ((child.getNodeState() == 1) && (child.getWeight() != 0)) {
+                    this.weight[t] = child.getWeight();
+                    this.weighted = true;
+                }
+                if (t > this.maxIndex) {
+                    this.maxIndex = t;
+                }
+            }
+            return b;
+        }
+
+        /**
+         * 查找能容纳全部子节点、且未被其他区块使用的base值
+         * 沿空闲槽位链表查找第一个子节点的位置，再检查其余子节点的槽位
+         * 窄的区块从第一个空闲槽位开始查找，填满宽区块之间的空隙
+         */
+        private int findBase(final long[] codes) {
+            final int firstCode = (int) (codes[0] >>> 32);
+            final int lastCode = (int) (codes[codes.length - 1] >>> 32);
+            final int width = Math.min(codes.length, Builder.WIDTH_GROUPS - 1);
+            int pos = this.firstFree;
+            if ((width >= Builder.WIDE_BLOCK) && (this.widthCheckPos[width] > pos)) {
+                // 从上一次同组分配的位置之后的第一个空闲槽位开始
+                pos = this.widthCheckPos[width];
+                this.ensureCapacity(pos + 1);
+                while (this.check[pos] != DoubleArrayTrie.FREE) {
+                    pos++;
+                    this.ensureCapacity(pos + 1);
+                }
+            }
+            outer: while (true) {
+                if (pos >= this.check.length) {
+                    // 空闲槽位已用完，扩充后链表自动延续
+                    this.ensureCapacity(pos + 1);
+                }
+                final int b = pos - firstCode;
+                if ((b < 1) || this.usedBase[b]) {
+                    pos = this.nextFree[pos];
+                    continue;
+                }
+                this.ensureCapacity(b + lastCode + 1);
+                for (int i = 1; i < codes.length; i++) {
+                    if (this.check[b + (int) (codes[i] >>> 32)] != DoubleArrayTrie.FREE) {
+                        pos = this.nextFree[pos];
+                        continue outer;
+                    }
+                }
+                this.widthCheckPos[width] = pos;
+                return b;
+            }
+        }
+
+        /**
+         * 将[from, to)的槽位追加到空闲链表末尾
+         */
+        private void linkFree(final int from, final int to) {
+            for (int i = from; i < to; i++) {
+                this.nextFree[this.lastFree] = i;
+                this.prevFree[i] = this.lastFree;
+                this.lastFree = i;
+            }
+            this.nextFree[this.lastFree] = to;
+        }
+
+        /**
+         * 从空闲链表中移除槽位
+         */
+        private void unlinkFree(final int t) {
+            final int prev = this.prevFree[t];
+            final int next = this.nextFree[t];
+            if (t == this.firstFree) {
+                this.firstFree = next;
+            } else {
+                this.nextFree[prev] = next;
+            }
+            if (t == this.lastFree) {
+                this.lastFree = prev;
+            } else {
+                this.prevFree[next] = prev;
+            }
+        }
+
+        /**
+         * 扩充数组容量
+         */
+        private void ensureCapacity(final int capacity) {
+            if (capacity <= this.check.length) {
+                return;
+            }
+            final int oldSize = this.check.length;
+            final int newSize = Math.max(capacity, oldSize * 2);
+            this.base = Arrays.copyOf(this.base, newSize);
+            this.check = Arrays.copyOf(this.check, newSize);
+            this.nodeState = Arrays.copyOf(this.nodeState, newSize);
+            this.weight = Arrays.copyOf(this.weight, newSize);
+            this.usedBase = Arrays.copyOf(this.usedBase, newSize);
+            this.nextFree = Arrays.copyOf(this.nextFree, newSize);
+            this.prevFree = Arrays.copyOf(this.prevFree, newSize);
+            Arrays.fill(this.check, oldSize, newSize, DoubleArrayTrie.FREE);
+            this.linkFree(oldSize, newSize);
+        }
+
+        /**
+         * 按实际使用的长度截断数组，生成双数组Trie
+         */
+        DoubleArrayTrie toTrie() {
+            final int size = this.maxIndex + 1;
+            final int[] weights = this.weighted ? Arrays.copyOf(this.weight, size) : null;
+            return new HeapDoubleArrayTrie(this.charCode, Arrays.copyOf(this.base, size), Arrays.copyOf(this.check, size), Arrays.copyOf(this.nodeState, size), weights, this.totalWeight);
+        }
+    }
+
+    /**
+     * 合并等价节点时使用的节点签名
+     */
+    private static final class NodeKey {
+        // 节点状态、词频，以及各子节点的字符和等价节点编号
+        private final int[] key;
+        private final int   hash;
+
+        NodeKey(final int[] key) {
+            this.key = key;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return (o instanceof NodeKey) && Arrays.equals(this.key, ((NodeKey) o).key);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * 数组存放在堆内的双数组Trie
+ */
+final class HeapDoubleArrayTrie extends DoubleArrayTrie {
+    // 字符到字符码的映射表
+    private final char[] charCode;
+    // base数组
+    private final int[]  base;
+    // check数组
+    private final int[]  check;
+    // 状态标记
+    private final byte[] nodeState;
+    // 词频，词典没有词频时为null
+    private final int[]  weight;
+    // 词频之和
+    private final long   totalWeight;
+
+    HeapDoubleArrayTrie(final char[] charCode, final int[] base, final int[] check, final byte[] nodeState, final int[] weight, final long totalWeight) {
+        this.charCode = charCode;
+        this.base = base;
+        this.check = check;
+        this.nodeState = nodeState;
+        this.weight = weight;
+        this.totalWeight = totalWeight;
+    }
+
+    @Override
+    int charCode(final char c) {
+        return this.charCode[c];
+    }
+
+    @Override
+    int base(final int state) {
+        return this.base[state];
+    }
+
+    @Override
+    int check(final int index) {
+        return this.check[index];
+    }
+
+    @Override
+    int nodeState(final int state) {
+        return this.nodeState[state];
+    }
+
+    @Override
+    int weight(final int state) {
+        return this.weight == null ? 0 : this.weight[state];
+    }
+
+    @Override
+    boolean hasWeights() {
+        return this.weight != null;
+    }
+
+    @Override
+    long totalWeight() {
+        return this.totalWeight;
+    }
+
+    @Override
+    int size() {
+        return this.check.length;
+    }
+}
@@ -33,6 +33,9 @@ public class Hit {
     private int              hitState = Hit.UNMATCH;
     // 记录词典匹配过程中，当前匹配到的词典分支节点
     private DictSegment      matchedDictSegment;
+    // 记录双数组匹配过程中，当前匹配到的双数组及状态
+    private DoubleArrayTrie  matchedTrie;
+    private int              matchedState;
     /*
      * 词段开始位置
      */
@@ -41,6 +44,10 @@ public class Hit {
      * 词段的结束位置
      */
     private int              end;
+    /*
+     * 完全匹配时词条的词频，词典未提供词频时为0
+     */
+    private int              weight;
 
     /**
      * 判断是否完全匹配
@@ -82,6 +89,22 @@ public class Hit {
 	 */
     public void setUnmatch() {
         this.hitState = Hit.UNMATCH;
+        this.weight = 0;
+    }
+
+    /**
+     * 重置hit，以便从新的起始位置开始匹配
+     * 
+     * @param begin
+     */
+    public void reset(final int begin) {
+        this.hitState = Hit.UNMATCH;
+        this.matchedDictSegment = null;
+        this.matchedTrie = null;
+        this.matchedState = 0;
+        this.begin = begin;
+        this.end = begin;
+        this.weight = 0;
     }
 
     public DictSegment getMatchedDictSegment() {
@@ -92,6 +115,22 @@ public class Hit {
         this.matchedDictSegment = matchedDictSegment;
     }
 
+    DoubleArrayTrie getMatchedTrie() {
+        return this.matchedTrie;
+    }
+
+    void setMatchedTrie(final DoubleArrayTrie matchedTrie) {
+        this.matchedTrie = matchedTrie;
+    }
+
+    public int getMatchedState() {
+        return this.matchedState;
+    }
+
+    public void setMatchedState(final int matchedState) {
+        this.matchedState = matchedState;
+    }
+
     public int getBegin() {
         return this.begin;
     }
@@ -107,4 +146,12 @@ public class Hit {
     public void setEnd(final int end) {
         this.end = end;
     }
+
+    public int getWeight() {
+        return this.weight;
+    }
+
+    public void setWeight(final int weight) {
+        this.weight = weight;
+    }
 }
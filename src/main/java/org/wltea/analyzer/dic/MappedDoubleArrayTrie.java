@@ -0,0 +1,114 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 直接读取内存映射快照文件的双数组Trie
+ * 数据位于堆外，由操作系统页缓存在多个进程间共享，不占用堆内存也不参与GC扫描
+ */
+final class MappedDoubleArrayTrie extends DoubleArrayTrie {
+    // 字符到字符码的映射表
+    private final CharBuffer charCode;
+    // base数组
+    private final IntBuffer  base;
+    // check数组
+    private final IntBuffer  check;
+    // 状态标记
+    private final ByteBuffer nodeState;
+    // 词频，词典没有词频时为null
+    private final IntBuffer  weight;
+    // 词频之和
+    private final long       totalWeight;
+    // 数组长度
+    private final int        size;
+    // 快照中保存的根状态直接查找表，没有保存时为null
+    private final IntBuffer  rootTable;
+
+    MappedDoubleArrayTrie(final CharBuffer charCode, final IntBuffer base, final IntBuffer check, final ByteBuffer nodeState, final IntBuffer weight, final long totalWeight, final int size, final IntBuffer rootTable) {
+        this.charCode = charCode;
+        this.base = base;
+        this.check = check;
+        this.nodeState = nodeState;
+        this.weight = weight;
+        this.totalWeight = totalWeight;
+        this.size = size;
+        this.rootTable = rootTable;
+    }
+
+    @Override
+    int rootChild(final char c) {
+        if (this.rootTable != null) {
+            final int i = c - DoubleArrayTrie.ROOT_BEGIN;
+            if ((i >= 0) && (i < DoubleArrayTrie.ROOT_LENGTH)) {
+                return this.rootTable.get(i);
+            }
+        }
+        return super.rootChild(c);
+    }
+
+    @Override
+    boolean hasRootTable() {
+        return (this.rootTable != null) || super.hasRootTable();
+    }
+
+    @Override
+    int charCode(final char c) {
+        return this.charCode.get(c);
+    }
+
+    @Override
+    int base(final int state) {
+        return this.base.get(state);
+    }
+
+    @Override
+    int check(final int index) {
+        return this.check.get(index);
+    }
+
+    @Override
+    int nodeState(final int state) {
+        return this.nodeState.get(state);
+    }
+
+    @Override
+    int weight(final int state) {
+        return this.weight == null ? 0 : this.weight.get(state);
+    }
+
+    @Override
+    boolean hasWeights() {
+        return this.weight != null;
+    }
+
+    @Override
+    long totalWeight() {
+        return this.totalWeight;
+    }
+
+    @Override
+    int size() {
+        return this.size;
+    }
+}
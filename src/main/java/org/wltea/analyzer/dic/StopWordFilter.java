@@ -0,0 +1,124 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * 停止词预过滤器
+ * 依次检查词长、首字符位图和Bloom过滤器，绝大多数不是停止词的词元在这里即被排除，
+ * 只有可能是停止词时才需要查询停止词词典
+ * 过滤器只会误判为可能是停止词，不会漏判
+ */
+final class StopWordFilter {
+    // 每个停止词在Bloom过滤器中占用的位数
+    private static final int BITS_PER_WORD = 16;
+    // 每个停止词在Bloom过滤器中置位的数目
+    private static final int HASH_COUNT    = 3;
+    // 停止词首字符的位图
+    private final long[]     firstChars    = new long[65536 / 64];
+    // 停止词长度的位图，63及以上的长度都记在第63位
+    private final long       lengths;
+    // Bloom过滤器的位数组
+    private final long[]     bloom;
+    // 位数组下标的掩码，位数为2的幂
+    private final int        mask;
+
+    /**
+     * 由停止词构造过滤器
+     * 
+     * @param words
+     *            停止词
+     */
+    StopWordFilter(final String[] words) {
+        int bits = 64;
+        while (bits < words.length * StopWordFilter.BITS_PER_WORD) {
+            bits <<= 1;
+        }
+        this.bloom = new long[bits / 64];
+        this.mask = bits - 1;
+        long lengthBits = 0;
+        for (final String word : words) {
+            final char[] chars = word.toCharArray();
+            if (chars.length == 0) {
+                continue;
+            }
+            lengthBits |= 1L << Math.min(chars.length, 63);
+            this.firstChars[chars[0] >>> 6] |= 1L << chars[0];
+            final int h1 = StopWordFilter.hash(chars, 0, chars.length);
+            final int h2 = Integer.rotateLeft(h1, 16) | 1;
+            for (int i = 0; i < StopWordFilter.HASH_COUNT; i++) {
+                final int bit = (h1 + (i * h2)) & this.mask;
+                this.bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+        this.lengths = lengthBits;
+    }
+
+    /**
+     * 判断词段是否可能是停止词
+     * 
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return boolean false表示一定不是停止词
+     */
+    boolean mightContain(final char[] charArray, final int begin, final int length) {
+        if ((length <= 0) || ((this.lengths & (1L << Math.min(length, 63))) == 0)) {
+            return false;
+        }
+        final char first = charArray[begin];
+        if ((this.firstChars[first >>> 6] & (1L << first)) == 0) {
+            return false;
+        }
+        final int h1 = StopWordFilter.hash(charArray, begin, length);
+        final int h2 = Integer.rotateLeft(h1, 16) | 1;
+        for (int i = 0; i < StopWordFilter.HASH_COUNT; i++) {
+            final int bit = (h1 + (i * h2)) & this.mask;
+            if ((this.bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 估算占用的字节数
+     * 
+     * @return long
+     */
+    long byteSize() {
+        return DictionaryStatistics.objectBytes(4 + 8 + 4 + 4) + DictionaryStatistics.arrayBytes(this.firstChars.length, 8) + DictionaryStatistics.arrayBytes(this.bloom.length, 8);
+    }
+
+    /**
+     * 计算词段的散列值，按String.hashCode的方式累加后再打散各位
+     */
+    private static int hash(final char[] charArray, final int begin, final int length) {
+        int h = 0;
+        for (int i = begin; i < begin + length; i++) {
+            h = (31 * h) + charArray[i];
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
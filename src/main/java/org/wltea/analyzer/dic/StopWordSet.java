@@ -0,0 +1,261 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 停止词集合
+ * 停止词按词长分组，每组使用最小完美散列（散列后位移，CHD），每个停止词恰好占用一个槽位
+ * 同一组的词等长，按槽位顺序连续存放在一个字符数组中
+ * 查询时计算两次散列，读取一次位移和一个槽位的字符，不分配对象
+ * 构造后只读
+ */
+final class StopWordSet {
+    // 平均每个位移值对应的词数
+    private static final int     WORDS_PER_GROUP  = 3;
+    // 第一层散列的种子
+    private static final int     GROUP_SEED       = 0x811c9dc5;
+    // 查找位移值的最大尝试次数
+    private static final int     MAX_DISPLACEMENT = 1 << 24;
+    // 按词长分组的散列表，下标为词长，没有该长度的停止词时为null
+    private final LengthBucket[] buckets;
+    // 停止词数目
+    private final int            size;
+
+    /**
+     * 由停止词构造集合
+     * 
+     * @param words
+     *            不含重复的停止词
+     */
+    StopWordSet(final String[] words) {
+        int maxLength = 0;
+        for (final String word : words) {
+            maxLength = Math.max(maxLength, word.length());
+        }
+        final List<List<String>> byLength = new ArrayList<List<String>>();
+        for (int i = 0; i <= maxLength; i++) {
+            byLength.add(new ArrayList<String>());
+        }
+        for (final String word : words) {
+            if (word.length() > 0) {
+                byLength.get(word.length()).add(word);
+            }
+        }
+        this.buckets = new LengthBucket[maxLength + 1];
+        int count = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            final List<String> group = byLength.get(length);
+            if (!group.isEmpty()) {
+                this.buckets[length] = new LengthBucket(length, group.toArray(new String[group.size()]));
+                count += group.size();
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * 判断词段是否是停止词
+     * 
+     * @param charArray
+     * @param begin
+     * @param length
+     * @return boolean
+     */
+    boolean contains(final char[] charArray, final int begin, final int length) {
+        if ((length <= 0) || (length >= this.buckets.length)) {
+            return false;
+        }
+        final LengthBucket bucket = this.buckets[length];
+        return (bucket != null) && bucket.contains(charArray, begin);
+    }
+
+    /**
+     * 停止词数目
+     * 
+     * @return int
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 估算占用的字节数
+     * 
+     * @return long
+     */
+    long byteSize() {
+        long bytes = DictionaryStatistics.objectBytes(4 + 4) + DictionaryStatistics.arrayBytes(this.buckets.length, 4);
+        for (final LengthBucket bucket : this.buckets) {
+            if (bucket != null) {
+                bytes += DictionaryStatistics.objectBytes(4 + 4 + 4 + 4) + DictionaryStatistics.arrayBytes(bucket.displacements.length, 4) + DictionaryStatistics.arrayBytes(bucket.keys.length, 2);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 按字符顺序返回全部停止词
+     * 
+     * @return String[]
+     */
+    String[] words() {
+        final String[] words = new String[this.size];
+        int n = 0;
+        for (final LengthBucket bucket : this.buckets) {
+            if (bucket != null) {
+                for (int slot = 0; slot < bucket.size; slot++) {
+                    words[n++] = new String(bucket.keys, slot * bucket.length, bucket.length);
+                }
+            }
+        }
+        Arrays.sort(words);
+        return words;
+    }
+
+    /**
+     * 带种子的散列，FNV-1a累加后再打散各位
+     * 不同的种子对同一组词给出互不相关的散列值
+     */
+    private static int hash(final char[] charArray, final int begin, final int length, final int seed) {
+        int h = seed;
+        for (int i = begin; i < begin + length; i++) {
+            h = (h ^ charArray[i]) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & 0x7fffffff;
+    }
+
+    /**
+     * 位移值对应的第二层散列种子
+     */
+    private static int slotSeed(final int displacement) {
+        return displacement * 0x9e3779b9;
+    }
+
+    /**
+     * 同一词长的停止词
+     * 第一层散列把词分到若干组，每组记录一个位移值，第二层散列以位移值为种子把组内的词映射到互不冲突的槽位
+     */
+    private static final class LengthBucket {
+        // 词长
+        private final int    length;
+        // 词数，同时是槽位数
+        private final int    size;
+        // 每组的位移值，0表示该组没有词
+        private final int[]  displacements;
+        // 按槽位顺序存放的词，每个槽位length个字符
+        private final char[] keys;
+
+        LengthBucket(final int length, final String[] words) {
+            this.length = length;
+            this.size = words.length;
+            final int groupCount = Math.max(1, words.length / StopWordSet.WORDS_PER_GROUP);
+            this.displacements = new int[groupCount];
+            this.keys = new char[words.length * length];
+            // 按第一层散列分组
+            final char[][] chars = new char[words.length][];
+            final int[] groupSize = new int[groupCount];
+            final int[] groupOf = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                chars[i] = words[i].toCharArray();
+                groupOf[i] = StopWordSet.hash(chars[i], 0, length, StopWordSet.GROUP_SEED) % groupCount;
+                groupSize[groupOf[i]]++;
+            }
+            final int[][] groups = new int[groupCount][];
+            for (int g = 0; g < groupCount; g++) {
+                groups[g] = new int[groupSize[g]];
+                groupSize[g] = 0;
+            }
+            for (int i = 0; i < words.length; i++) {
+                groups[groupOf[i]][groupSize[groupOf[i]]++] = i;
+            }
+            // 词多的组先放置，空槽位多时更容易找到位移值
+            final Integer[] order = new Integer[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                order[g] = g;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer a, final Integer b) {
+                    return groups[b].length - groups[a].length;
+                }
+            });
+            final boolean[] occupied = new boolean[words.length];
+            final int[] slots = new int[words.length];
+            for (final Integer g : order) {
+                final int[] group = groups[g];
+                if (group.length == 0) {
+                    continue;
+                }
+                this.displacements[g] = this.place(group, chars, occupied, slots);
+                for (final int i : group) {
+                    occupied[slots[i]] = true;
+                    System.arraycopy(chars[i], 0, this.keys, slots[i] * length, length);
+                }
+            }
+        }
+
+        /**
+         * 查找使组内全部词落到互不冲突的空槽位的位移值
+         */
+        private int place(final int[] group, final char[][] chars, final boolean[] occupied, final int[] slots) {
+            outer: for (int d = 1; d < StopWordSet.MAX_DISPLACEMENT; d++) {
+                final int seed = StopWordSet.slotSeed(d);
+                for (int k = 0; k < group.length; k++) {
+                    final int slot = StopWordSet.hash(chars[group[k]], 0, this.length, seed) % this.size;
+                    if (occupied[slot]) {
+                        continue outer;
+                    }
+                    for (int j = 0; j < k; j++) {
+                        if (slots[group[j]] == slot) {
+                            continue outer;
+                        }
+                    }
+                    slots[group[k]] = slot;
+                }
+                return d;
+            }
+            throw new IllegalStateException("无法为停止词构造完美散列，词长：" + this.length);
+        }
+
+        boolean contains(final char[] charArray, final int begin) {
+            final int d = this.displacements[StopWordSet.hash(charArray, begin, this.length, StopWordSet.GROUP_SEED) % this.displacements.length];
+            if (d == 0) {
+                return false;
+            }
+            final int offset = (StopWordSet.hash(charArray, begin, this.length, StopWordSet.slotSeed(d)) % this.size) * this.length;
+            for (int i = 0; i < this.length; i++) {
+                if (this.keys[offset + i] != charArray[begin + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 按字符顺序排列且不含重复的词条，以及各词条的词频
+ * 词典文件的每一行是“词条”或“词条\t词频”，没有词频的词条词频为0
+ */
+final class WordList {
+    // 空词条表
+    static final WordList EMPTY = new WordList(new String[0], null);
+    // 按字符顺序排列的词条
+    final String[]        words;
+    // 与words一一对应的词频，全部词条都没有词频时为null
+    final int[]           weights;
+
+    WordList(final String[] words, final int[] weights) {
+        this.words = words;
+        this.weights = weights;
+    }
+
+    /**
+     * 词条数目
+     *
+     * @return int
+     */
+    int size() {
+        return this.words.length;
+    }
+
+    /**
+     * 第i个词条的词频
+     *
+     * @param i
+     * @return int 没有词频时为0
+     */
+    int weight(final int i) {
+        return this.weights == null ? 0 : this.weights[i];
+    }
+
+    /**
+     * 由未排序、可能重复的词条构造
+     * 重复的词条保留最后一个不为0的词频
+     *
+     * @param words
+     * @param weights
+     *            与words一一对应的词频，可以为null，长度可以大于词条数目
+     * @param count
+     *            词条数目
+     * @return WordList
+     */
+    static WordList sort(final String[] words, final int[] weights, final int count) {
+        if (weights == null) {
+            final String[] sorted = Arrays.copyOf(words, count);
+            Arrays.sort(sorted);
+            return WordList.merge(WordList.EMPTY, new WordList(sorted, null));
+        }
+        // 按词条排序下标，排序稳定，重复词条保持原有的先后顺序
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                return words[i1].compareTo(words[i2]);
+            }
+        });
+        final String[] sortedWords = new String[count];
+        final int[] sortedWeights = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedWords[i] = words[order[i]];
+            sortedWeights[i] = weights[order[i]];
+        }
+        return WordList.merge(WordList.EMPTY, new WordList(sortedWords, sortedWeights));
+    }
+
+    /**
+     * 归并两组已排序的词条，去除重复
+     * 重复的词条优先使用b中不为0的词频
+     *
+     * @param a
+     * @param b
+     * @return WordList 排序且不含重复的词条
+     */
+    static WordList merge(final WordList a, final WordList b) {
+        final String[] merged = new String[a.size() + b.size()];
+        final int[] mergedWeights = (a.weights == null) && (b.weights == null) ? null : new int[merged.length];
+        int i = 0, j = 0, n = 0;
+        while ((i < a.size()) || (j < b.size())) {
+            final String word;
+            final int weight;
+            if (j >= b.size()) {
+                weight = a.weight(i);
+                word = a.words[i++];
+            } else if (i >= a.size()) {
+                weight = b.weight(j);
+                word = b.words[j++];
+            } else if (a.words[i].compareTo(b.words[j]) <= 0) {
+                weight = a.weight(i);
+                word = a.words[i++];
+            } else {
+                weight = b.weight(j);
+                word = b.words[j++];
+            }
+            if ((n > 0) && word.equals(merged[n - 1])) {
+                // 重复的词条，后出现的词频不为0时覆盖
+                if ((mergedWeights != null) && (weight != 0)) {
+                    mergedWeights[n - 1] = weight;
+                }
+                continue;
+            }
+            if (mergedWeights != null) {
+                mergedWeights[n] = weight;
+            }
+            merged[n++] = word;
+        }
+        if (n == merged.length) {
+            return new WordList(merged, mergedWeights);
+        }
+        return new WordList(Arrays.copyOf(merged, n), mergedWeights == null ? null : Arrays.copyOf(mergedWeights, n));
+    }
+}
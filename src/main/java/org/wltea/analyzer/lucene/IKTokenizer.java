@@ -26,6 +26,7 @@ import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.wltea.analyzer.cfg.Configuration;
 import org.wltea.analyzer.core.IKSegmenter;
 import org.wltea.analyzer.core.Lexeme;
 
@@ -59,6 +60,21 @@ public final class IKTokenizer extends Tokenizer {
         this._IKImplement = new IKSegmenter(this.input, useSmart);
     }
 
+    /**
+     * Lucene 4.0 Tokenizer适配器类构造函数
+     * 
+     * @param in
+     * @param cfg
+     *            使用自定义的Configuration构造分词器
+     */
+    public IKTokenizer(final Reader in, final Configuration cfg) {
+        super(in);
+        this.offsetAtt = this.addAttribute(OffsetAttribute.class);
+        this.termAtt = this.addAttribute(CharTermAttribute.class);
+        this.typeAtt = this.addAttribute(TypeAttribute.class);
+        this._IKImplement = new IKSegmenter(this.input, cfg);
+    }
+
     @Override
     public boolean incrementToken() throws IOException {
         // 清除所有的词元属性
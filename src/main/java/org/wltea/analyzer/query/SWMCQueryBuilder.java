@@ -20,7 +20,6 @@
 package org.wltea.analyzer.query;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,7 +66,7 @@ public class SWMCQueryBuilder {
      */
     private static List<Lexeme> doAnalyze(final String keywords) {
         final List<Lexeme> lexemes = new ArrayList<Lexeme>();
-        final IKSegmenter ikSeg = new IKSegmenter(new StringReader(keywords), true);
+        final IKSegmenter ikSeg = new IKSegmenter(keywords, true);
         try {
             Lexeme l = null;
             while ((l = ikSeg.next()) != null) {
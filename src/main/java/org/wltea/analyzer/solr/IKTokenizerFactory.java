@@ -5,6 +5,8 @@ import java.util.Map;
 
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.util.TokenizerFactory;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
 import org.wltea.analyzer.lucene.IKTokenizer;
 
 /**
@@ -13,16 +15,26 @@ import org.wltea.analyzer.lucene.IKTokenizer;
  * @author felix
  */
 public class IKTokenizerFactory extends TokenizerFactory {
-    private boolean useSmart = false;
+    private boolean       useSmart = false;
+    // 通过conf参数指定的配置，未指定时使用默认配置文件
+    private Configuration cfg;
 
     @Override
     public void init(final Map<String, String> params) {
         super.init(params);
         this.useSmart = Boolean.parseBoolean(params.get("useSmart"));
+        final String conf = params.get("conf");
+        if ((conf != null) && !"".equals(conf.trim())) {
+            this.cfg = DefaultConfig.getInstance(conf.trim());
+            this.cfg.setUseSmart(this.useSmart);
+        }
     }
 
     @Override
     public Tokenizer create(final Reader in) {
+        if (this.cfg != null) {
+            return new IKTokenizer(in, this.cfg);
+        }
         return new IKTokenizer(in, this.useSmart);
     }
 }
@@ -0,0 +1,153 @@
+/**
+ * IK 中文分词 版本 5.0
+ * IK Analyzer release 5.0
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ */
+package org.wltea.analyzer.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * 缓冲区边界回归检查
+ * 对长于缓冲区的文本，比较IKSegmenter通过Reader分词的结果与逐个字符移动指针的基准结果
+ * 基准流程即跳过CHAR_USELESS字符之前的分词主循环，两者的缓冲区移位位置和分词结果必须完全一致
+ * 结果不一致时输出第一个不同的词元，并以状态码1退出
+ */
+public class BufferBoundaryCheck {
+    // 生成文本的字符数，远大于默认的缓冲区大小
+    private static final int    TEXT_LENGTH = 200000;
+    // 生成文本使用的语料，去除标点后拼接成较长的连续中文段落
+    private static final String CORPUS      = "中华人民共和国成立以来，国民经济和社会发展取得了举世瞩目的成就。" + "研究生命起源是现代生物学的重要课题，科学家们提出了多种假说。" + "这款手机采用6.5英寸全面屏，售价为二千九百九十九元，首批备货三万台。" + "北京大学和清华大学的研究人员联合发表了关于量子计算的论文。" + "IKAnalyzer是一个开源的，基于java语言开发的轻量级的中文分词工具包。";
+    // 插入段落之间的CHAR_USELESS字符
+    private static final String USELESS     = " ,.<>/-!\n";
+
+    public static void main(final String[] args) throws IOException {
+        final Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 20121022L);
+        final String text = BufferBoundaryCheck.generate(random);
+        int failures = 0;
+        for (final boolean useSmart : new boolean[] { false, true }) {
+            final List<String> expected = BufferBoundaryCheck.reference(text, useSmart);
+            final List<String> actual = new ArrayList<String>();
+            final IKSegmenter segmenter = new IKSegmenter(new StringReader(text), useSmart);
+            Lexeme l = null;
+            while ((l = segmenter.next()) != null) {
+                actual.add(BufferBoundaryCheck.format(l));
+            }
+            final int diff = BufferBoundaryCheck.firstDifference(expected, actual);
+            if (diff >= 0) {
+                failures++;
+                System.out.println("useSmart=" + useSmart + " 第" + diff + "个词元不同：基准 " + (diff < expected.size() ? expected.get(diff) : "<结束>") + " ，实际 " + (diff < actual.size() ? actual.get(diff) : "<结束>"));
+            } else {
+                System.out.println("useSmart=" + useSmart + " 一致，共" + actual.size() + "个词元");
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 生成测试文本
+     * 语料片段去除标点后连续拼接，片段之间插入长短不一的CHAR_USELESS字符串，使跳过的字符串跨越缓冲区的临界区
+     */
+    private static String generate(final Random random) {
+        final StringBuilder sb = new StringBuilder(BufferBoundaryCheck.TEXT_LENGTH + 400);
+        while (sb.length() < BufferBoundaryCheck.TEXT_LENGTH) {
+            final int begin = random.nextInt(BufferBoundaryCheck.CORPUS.length());
+            final int end = Math.min(BufferBoundaryCheck.CORPUS.length(), begin + 20 + random.nextInt(200));
+            for (int i = begin; i < end; i++) {
+                final char c = BufferBoundaryCheck.CORPUS.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    sb.append(c);
+                }
+            }
+            final int uselessLength = random.nextInt(4) == 0 ? 50 + random.nextInt(250) : random.nextInt(6);
+            for (int i = 0; i < uselessLength; i++) {
+                sb.append(BufferBoundaryCheck.USELESS.charAt(random.nextInt(BufferBoundaryCheck.USELESS.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 基准分词流程，与IKSegmenter.next()相同，但不跳过CHAR_USELESS字符，每次只移动一个字符
+     */
+    private static List<String> reference(final String text, final boolean useSmart) throws IOException {
+        final Configuration cfg = DefaultConfig.getInstance();
+        cfg.setUseSmart(useSmart);
+        final AnalyzeContext context = new AnalyzeContext(cfg, Dictionary.getInstance(cfg));
+        final List<ISegmenter> segmenters = new ArrayList<ISegmenter>();
+        segmenters.add(new LetterSegmenter());
+        segmenters.add(new CN_QuantifierSegmenter());
+        segmenters.add(new CJKSegmenter());
+        final IKArbitrator arbitrator = new IKArbitrator();
+        final Reader input = new StringReader(text);
+        final List<String> lexemes = new ArrayList<String>();
+        while (true) {
+            Lexeme l = context.getNextLexeme();
+            if (l != null) {
+                lexemes.add(BufferBoundaryCheck.format(l));
+                continue;
+            }
+            if (context.fillBuffer(input) <= 0) {
+                break;
+            }
+            context.initCursor();
+            do {
+                for (final ISegmenter segmenter : segmenters) {
+                    segmenter.analyze(context);
+                }
+                if (context.needRefillBuffer()) {
+                    break;
+                }
+                if (context.needGrowBuffer()) {
+                    context.growBuffer(input);
+                }
+            } while (context.moveCursor());
+            for (final ISegmenter segmenter : segmenters) {
+                segmenter.reset();
+            }
+            arbitrator.process(context, useSmart);
+            context.outputToResult();
+            context.markBufferOffset();
+        }
+        return lexemes;
+    }
+
+    private static String format(final Lexeme l) {
+        return l.getBeginPosition() + "-" + l.getEndPosition() + " : " + l.getLexemeText() + " | " + l.getLexemeTypeString();
+    }
+
+    private static int firstDifference(final List<String> expected, final List<String> actual) {
+        final int n = Math.min(expected.size(), actual.size());
+        for (int i = 0; i < n; i++) {
+            if (!expected.get(i).equals(actual.get(i))) {
+                return i;
+            }
+        }
+        return expected.size() == actual.size() ? -1 : n;
+    }
+}